@@ -0,0 +1,136 @@
+package com.example.e_commerce_api.controller;
+
+import com.example.e_commerce_api.dto.CacheStatsDTO;
+import com.example.e_commerce_api.dto.CartConflictStatsDTO;
+import com.example.e_commerce_api.dto.CartStoreStatsDTO;
+import com.example.e_commerce_api.dto.FlashSaleStockDTO;
+import com.example.e_commerce_api.dto.PaymentGatewayStatsDTO;
+import com.example.e_commerce_api.dto.PaymentReconciliationStatsDTO;
+import com.example.e_commerce_api.dto.PaymentWebhookStatsDTO;
+import com.example.e_commerce_api.exception.ResourceNotFoundException;
+import com.example.e_commerce_api.service.ProductService;
+import com.example.e_commerce_api.service.cart.RetryingCartItemService;
+import com.example.e_commerce_api.service.cart.WriteBehindCartStore;
+import com.example.e_commerce_api.service.inventory.FlashSaleStockService;
+import com.example.e_commerce_api.service.payment.PaymentReconciliationJob;
+import com.example.e_commerce_api.service.payment.PaymentWebhookService;
+import com.example.e_commerce_api.service.payment.ResilientPaymentGateway;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+@Tag(name = "admin", description = "Operational endpoints for administrators")
+@SecurityRequirement(name = "bearerAuth")
+public class AdminController {
+
+    private final ProductService productService;
+
+    private final FlashSaleStockService flashSaleStockService;
+
+    private final RetryingCartItemService retryingCartItemService;
+
+    private final ObjectProvider<WriteBehindCartStore> writeBehindCartStore;
+
+    private final PaymentWebhookService paymentWebhookService;
+
+    private final ResilientPaymentGateway resilientPaymentGateway;
+
+    private final PaymentReconciliationJob paymentReconciliationJob;
+
+    @GetMapping("/metrics/product-cache")
+    @Operation(summary = "Returns product cache statistics", description = "Reports size, hit, miss and eviction counters of the in-process product cache")
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    public ResponseEntity<CacheStatsDTO> getProductCacheStats(){
+        return ResponseEntity.ok(productService.getCacheStats());
+    }
+
+    @GetMapping("/metrics/cart-conflicts")
+    @Operation(summary = "Returns cart edit conflict statistics", description = "Reports optimistic locking conflicts on carts, how many were resolved by retrying and how many exhausted the retries")
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    public ResponseEntity<CartConflictStatsDTO> getCartConflictStats(){
+        return ResponseEntity.ok(retryingCartItemService.getConflictStats());
+    }
+
+    @GetMapping("/metrics/cart-store")
+    @Operation(summary = "Returns write-behind cart store statistics", description = "Reports buffered carts, absorbed edits and flush counters when cart.store.mode is write-behind")
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    @ApiResponse(responseCode = "404", description = "Carts are written straight to the database")
+    public ResponseEntity<CartStoreStatsDTO> getCartStoreStats(){
+        WriteBehindCartStore store = writeBehindCartStore.getIfAvailable();
+        if (store == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(store.getStats());
+    }
+
+    @GetMapping("/metrics/payment-webhooks")
+    @Operation(summary = "Returns payment webhook statistics", description = "Reports the webhook queue depth and how many events were received, ignored, dropped on a full queue and applied")
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    public ResponseEntity<PaymentWebhookStatsDTO> getPaymentWebhookStats(){
+        return ResponseEntity.ok(paymentWebhookService.getStats());
+    }
+
+    @GetMapping("/metrics/payment-gateway")
+    @Operation(summary = "Returns payment gateway resilience statistics", description = "Reports the circuit breaker state, calls in flight and how many calls failed, timed out or were refused by the breaker or the bulkhead")
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    public ResponseEntity<PaymentGatewayStatsDTO> getPaymentGatewayStats(){
+        return ResponseEntity.ok(resilientPaymentGateway.getStats());
+    }
+
+    @GetMapping("/metrics/payment-reconciliation")
+    @Operation(summary = "Returns payment reconciliation statistics", description = "Reports how many unsettled payments were checked against the gateway, how many were settled and how long the last run took")
+    @ApiResponse(responseCode = "200", description = "Statistics retrieved successfully")
+    public ResponseEntity<PaymentReconciliationStatsDTO> getPaymentReconciliationStats(){
+        return ResponseEntity.ok(paymentReconciliationJob.getStats());
+    }
+
+    @GetMapping("/flash-sale")
+    @Operation(summary = "Lists flash-sale products", description = "Returns the in-memory stock and the decrements still waiting to be written back for every flash-sale product")
+    @ApiResponse(responseCode = "200", description = "Flash-sale stock retrieved successfully")
+    public ResponseEntity<List<FlashSaleStockDTO>> getFlashSaleStocks(){
+        return ResponseEntity.ok(flashSaleStockService.getStocks());
+    }
+
+    @PostMapping("/flash-sale/{productId}")
+    @Operation(summary = "Puts a product on flash sale", description = "Moves the product's stock to striped in-memory counters that are written back to the database periodically")
+    @ApiResponse(responseCode = "200", description = "Flash sale enabled successfully")
+    @ApiResponse(responseCode = "404", description = "Product not found")
+    @ApiResponse(responseCode = "409", description = "Flash-sale stock is held by another instance")
+    public ResponseEntity<FlashSaleStockDTO> enableFlashSale(@PathVariable Long productId){
+        try {
+            return ResponseEntity.ok(flashSaleStockService.enable(productId));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).build();
+        }
+    }
+
+    @DeleteMapping("/flash-sale/{productId}")
+    @Operation(summary = "Ends a product's flash sale", description = "Writes pending decrements back and returns the product to database-backed stock")
+    @ApiResponse(responseCode = "204", description = "Flash sale disabled successfully")
+    @ApiResponse(responseCode = "409", description = "Reservations are still in flight or the stock is held by another instance; retry later")
+    public ResponseEntity<Void> disableFlashSale(@PathVariable Long productId){
+        try {
+            flashSaleStockService.disable(productId);
+            return ResponseEntity.noContent().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).build();
+        }
+    }
+}
@@ -1,19 +1,26 @@
 package com.example.e_commerce_api.controller;
 
 
+import com.example.e_commerce_api.dto.CartItemBatchDTO;
+import com.example.e_commerce_api.dto.CartItemResponseDTO;
 import com.example.e_commerce_api.dto.CartResponseDTO;
 import com.example.e_commerce_api.exception.ResourceNotFoundException;
 import com.example.e_commerce_api.model.Cart;
 import com.example.e_commerce_api.model.User;
 import com.example.e_commerce_api.repository.UserRepository;
+import com.example.e_commerce_api.service.cart.ICartItemService;
 import com.example.e_commerce_api.service.cart.ICartService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
@@ -26,23 +33,29 @@ public class CartController {
 
     private final ICartService cartService;
 
+    private final ICartItemService cartItemService;
+
     private final UserRepository userRepository;
 
+    @GetMapping("/me")
+    @Operation(summary = "Retrieves the authenticated user's active cart", description = "Resolves the user's current cart without scanning their cart history, creating it on the first visit")
+    @ApiResponse(responseCode = "200", description = "Cart retrieved successfully")
+    @ApiResponse(responseCode = "404", description = "Active cart was removed concurrently; retry the request")
+    public ResponseEntity<CartResponseDTO> getMyCart(@AuthenticationPrincipal User user){
+        try{
+            return ResponseEntity.ok(cartService.getCartView(cartService.getActiveCartId(user)));
+        }catch(ResourceNotFoundException e ){
+            return ResponseEntity.notFound().build();
+        }
+    }
+
     @GetMapping("/{cartId}")
     @Operation(summary = "Retrieves a cart by its ID", description = "Fetches the details of a specific shopping cart using its unique identifier")
     @ApiResponse(responseCode = "200", description = "Cart retrieved successfully")
     @ApiResponse(responseCode = "404", description = "Cart not found")
     public ResponseEntity<CartResponseDTO> getCart(@PathVariable Long cartId){
         try{
-            Cart cart = cartService.getCart(cartId);
-            var response = new CartResponseDTO(
-                    cart.getId(),
-                    cart.getTotalAmount(),
-                    cart.getItems(),
-                    cart.getPayments(),
-                    cart.getUser().getId()
-            );
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(cartService.getCartView(cartId));
         }catch(ResourceNotFoundException e ){
             return ResponseEntity.notFound().build();
         }
@@ -56,6 +69,26 @@ public class CartController {
             return ResponseEntity.noContent().build();
     }
 
+    @PatchMapping("/{cartId}/items")
+    @Operation(summary = "Applies a batch of item operations to the cart", description = "Applies ADD, SET and REMOVE operations in order within one transaction; REMOVE of a missing line is ignored and SET creates the line if needed")
+    @ApiResponse(responseCode = "200", description = "Operations applied successfully")
+    @ApiResponse(responseCode = "400", description = "Invalid quantity, not enough stock or a data constraint violated; no operation is applied")
+    @ApiResponse(responseCode = "404", description = "Cart or product not found")
+    @ApiResponse(responseCode = "409", description = "Cart kept changing concurrently; retry the request")
+    public ResponseEntity<CartItemResponseDTO> applyItemOperations(@PathVariable Long cartId, @RequestBody @Valid CartItemBatchDTO batch){
+        try{
+            return ResponseEntity.ok(cartItemService.applyOperations(cartId, batch.operations()));
+        }catch(ResourceNotFoundException e ){
+            return ResponseEntity.notFound().build();
+        }catch(IllegalArgumentException e ){
+            return ResponseEntity.badRequest().build();
+        }catch(ConcurrencyFailureException e ){
+            return ResponseEntity.status(409).build();
+        }catch(DataIntegrityViolationException e ){
+            return ResponseEntity.status(CartIntegrityFailures.status(e)).build();
+        }
+    }
+
     @GetMapping("/{cartId}/total")
     @Operation(summary = "Calculates the total amount of the cart", description = "Returns the total price of all items in the specified shopping cart")
     @ApiResponse(responseCode = "200", description = "Total amount retrieved successfully")
@@ -0,0 +1,19 @@
+package com.example.e_commerce_api.controller;
+
+import com.example.e_commerce_api.service.cart.RetryingCartItemService;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+// only a duplicate product line that outlived its retries is worth retrying; every other violation fails the same way again
+final class CartIntegrityFailures {
+
+    private CartIntegrityFailures() {
+    }
+
+    static HttpStatus status(DataIntegrityViolationException e) {
+        if (RetryingCartItemService.isDuplicateLine(e)) {
+            return HttpStatus.CONFLICT;
+        }
+        return RetryingCartItemService.isMissingReference(e) ? HttpStatus.NOT_FOUND : HttpStatus.BAD_REQUEST;
+    }
+}
@@ -3,15 +3,15 @@ package com.example.e_commerce_api.controller;
 import com.example.e_commerce_api.dto.CartItemAddDTO;
 import com.example.e_commerce_api.dto.CartItemResponseDTO;
 import com.example.e_commerce_api.dto.CartItemUpdateDTO;
-import com.example.e_commerce_api.model.Cart;
 import com.example.e_commerce_api.service.cart.ICartItemService;
-import com.example.e_commerce_api.service.cart.ICartService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,20 +23,20 @@ import org.springframework.web.bind.annotation.*;
 public class CartItemController {
     private final ICartItemService cartItemService;
 
-    private final ICartService cartService;
-
     @PostMapping
     @Operation(summary = "Adds an item to the cart", description = "Adds a specified product with a given quantity to the shopping cart")
     @ApiResponse(responseCode = "200", description = "Item added to cart successfully")
+    @ApiResponse(responseCode = "400", description = "The item violates a data constraint")
+    @ApiResponse(responseCode = "404", description = "Cart or product not found")
+    @ApiResponse(responseCode = "409", description = "Cart kept changing concurrently; retry the request")
     public ResponseEntity<CartItemResponseDTO> addItemToCart(@RequestBody @Valid CartItemAddDTO cartItemDTO){
-        cartItemService.addItemToCart(cartItemDTO.cartId(), cartItemDTO.productId(), cartItemDTO.quantity());
-        var cart = cartService.getCart(cartItemDTO.cartId());
-        var response = new CartItemResponseDTO(
-                cart.getId(),
-                cartService.getTotalPrice(cartItemDTO.cartId()),
-                cart.getItems()
-        );
-        return ResponseEntity.ok(response);
+        try {
+            return ResponseEntity.ok(cartItemService.addItemToCart(cartItemDTO.cartId(), cartItemDTO.productId(), cartItemDTO.quantity()));
+        } catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(409).build();
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(CartIntegrityFailures.status(e)).build();
+        }
     }
 
     @DeleteMapping("/{cartId}/products/{productId}")
@@ -50,14 +50,16 @@ public class CartItemController {
     @PutMapping("/{cartId}/products/{productId}")
     @Operation(summary = "Updates the quantity of an item in the cart", description = "Modifies the quantity of a specified product in the shopping cart")
     @ApiResponse(responseCode = "200", description = "Item quantity updated successfully")
+    @ApiResponse(responseCode = "400", description = "The item violates a data constraint")
+    @ApiResponse(responseCode = "404", description = "Cart or product not found")
+    @ApiResponse(responseCode = "409", description = "Cart kept changing concurrently; retry the request")
     public ResponseEntity<CartItemResponseDTO> updateItemQuantity(@RequestBody @Valid CartItemUpdateDTO cartItemUpdateDTO, @PathVariable Long cartId, @PathVariable Long productId){
-        cartItemService.updateItemQuantity(cartId, productId, cartItemUpdateDTO.quantity());
-        var cart = cartService.getCart(cartId);
-        var response = new CartItemResponseDTO(
-                cart.getId(),
-                cartService.getTotalPrice(cartId),
-                cart.getItems()
-        );
-        return ResponseEntity.ok(response);
+        try {
+            return ResponseEntity.ok(cartItemService.updateItemQuantity(cartId, productId, cartItemUpdateDTO.quantity()));
+        } catch (ConcurrencyFailureException e) {
+            return ResponseEntity.status(409).build();
+        } catch (DataIntegrityViolationException e) {
+            return ResponseEntity.status(CartIntegrityFailures.status(e)).build();
+        }
     }
 }
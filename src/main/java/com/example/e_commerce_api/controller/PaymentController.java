@@ -1,28 +1,29 @@
 package com.example.e_commerce_api.controller;
 
+import com.example.e_commerce_api.exception.InsufficientStockException;
+import com.example.e_commerce_api.exception.PaymentGatewayException;
+import com.example.e_commerce_api.exception.PaymentGatewayUnavailableException;
+import com.example.e_commerce_api.exception.ResourceNotFoundException;
 import com.example.e_commerce_api.model.Cart;
 import com.example.e_commerce_api.model.Payment;
-import com.example.e_commerce_api.model.Product;
-import com.example.e_commerce_api.service.PaymentService;
-import com.example.e_commerce_api.service.ProductService;
 import com.example.e_commerce_api.service.cart.ICartService;
-import com.stripe.Stripe;
-import com.stripe.exception.StripeException;
-import com.stripe.model.checkout.Session;
-import com.stripe.param.checkout.SessionCreateParams;
+import com.example.e_commerce_api.service.payment.CheckoutService;
+import com.example.e_commerce_api.service.payment.PaymentWebhookService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 @RestController
 @RequiredArgsConstructor
@@ -31,77 +32,83 @@ import java.util.Map;
 @SecurityRequirement(name = "bearerAuth")
 public class PaymentController {
 
-    private final ICartService cartService;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
 
-    private final PaymentService paymentService;
+    private final ICartService cartService;
 
-    private final ProductService productService;
+    private final CheckoutService checkoutService;
 
-    @PostConstruct
-    public void init(){
-        Stripe.apiKey = stripeSecretKey;
-    }
-
-    @Value("${STRIPE_SK}")
-    private String stripeSecretKey;
+    private final PaymentWebhookService paymentWebhookService;
 
     @PostMapping("/checkout/{cartId}")
-    @Operation(summary = "Creates a Stripe checkout session for the specified cart", description = "Generates a checkout session URL for payment processing")
+    @Operation(summary = "Creates a Stripe checkout session for the specified cart", description = "Reserves stock, then asks the payment gateway for a checkout session URL without holding the request thread")
     @ApiResponse(responseCode = "200", description = "Checkout session created successfully")
+    @ApiResponse(responseCode = "404", description = "Cart not found")
+    @ApiResponse(responseCode = "400", description = "Idempotency-Key is too long")
+    @ApiResponse(responseCode = "409", description = "Not enough stock for one or more items, or a request with the same Idempotency-Key is still in progress")
+    @ApiResponse(responseCode = "422", description = "Idempotency-Key was already used for another cart")
     @ApiResponse(responseCode = "500", description = "Error creating checkout session")
-    public ResponseEntity<Map<String, Object>> createCheckoutSession(@PathVariable Long cartId) {
+    @ApiResponse(responseCode = "503", description = "Too many checkouts in progress or payment gateway unavailable; retry later")
+    @ApiResponse(responseCode = "504", description = "Payment gateway did not answer in time")
+    public CompletableFuture<ResponseEntity<Map<String, Object>>> createCheckoutSession(
+            @PathVariable Long cartId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null && idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(Map.of("error", "Idempotency-Key is too long")));
+        }
         try {
-            Cart cart = cartService.getCart(cartId);
-
-
-            long totalAmount = (long) (cart.getItems().stream()
-                    .mapToDouble(item -> item.getProduct().getPrice() * item.getQuantity())
-                    .sum() * 100);
-
-            cart.getItems().forEach(item -> {
-                Product product = item.getProduct();
-                product.setQuantity(product.getQuantity() - item.getQuantity());
-                productService.saveProduct(product);
-            });
-
-            List<SessionCreateParams.LineItem> lineItems = cart.getItems().stream()
-                    .map(item -> SessionCreateParams.LineItem.builder()
-                            .setQuantity((long) item.getQuantity())
-                            .setPriceData(
-                                    SessionCreateParams.LineItem.PriceData.builder()
-                                            .setCurrency("brl")
-                                            .setUnitAmount((long) (item.getProduct().getPrice() * 100))
-                                            .setProductData(
-                                                    SessionCreateParams.LineItem.PriceData.ProductData.builder()
-                                                            .setName(item.getProduct().getName())
-                                                            .build()
-                                            )
-                                            .build()
-                            )
-                            .build()
-                    ).toList();
-
-            SessionCreateParams params = SessionCreateParams.builder()
-                    .setMode(SessionCreateParams.Mode.PAYMENT)
-                    .setSuccessUrl("https://meusite.com/success")
-                    .setCancelUrl("https://meusite.com/cancel")
-                    .addAllLineItem(lineItems)
-                    .setClientReferenceId(cartId.toString())
-                    .build();
-
-            Session session = Session.create(params);
-
-            paymentService.savePayment(cart, session.getId(), session.getUrl(), totalAmount);
-
-            Map<String, Object> response = new HashMap<>();
-            response.put("checkoutUrl", session.getUrl());
-            response.put("sessionId", session.getId());
+            return checkoutService.checkout(cartId, idempotencyKey)
+                    .thenApply(session -> {
+                        Map<String, Object> response = new HashMap<>();
+                        response.put("checkoutUrl", session.url());
+                        response.put("sessionId", session.id());
+                        return ResponseEntity.ok(response);
+                    })
+                    .exceptionally(PaymentController::checkoutFailed);
+        } catch (ResourceNotFoundException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        } catch (InsufficientStockException e) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.status(409).body(Map.of("error", e.getMessage(), "productIds", e.getProductIds())));
+        } catch (IllegalStateException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(409).body(Map.of("error", e.getMessage())));
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.unprocessableEntity().body(Map.of("error", e.getMessage())));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(503).body(Map.of("error", "Too many checkouts in progress")));
+        } catch (PaymentGatewayUnavailableException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(503).body(Map.of("error", e.getMessage())));
+        }
+    }
 
-            return ResponseEntity.ok(response);
+    @PostMapping("/webhook")
+    @Operation(summary = "Receives payment gateway events", description = "Verifies the event signature and queues the status change; changes are applied in batches shortly after")
+    @ApiResponse(responseCode = "200", description = "Event accepted")
+    @ApiResponse(responseCode = "400", description = "Missing or invalid signature, or unreadable event")
+    @ApiResponse(responseCode = "503", description = "Event queue is full; the gateway should redeliver later")
+    public ResponseEntity<Void> receiveWebhook(@RequestBody String payload,
+                                               @RequestHeader(value = "Stripe-Signature", required = false) String signature) {
+        if (signature == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return paymentWebhookService.receive(payload, signature)
+                    ? ResponseEntity.ok().build()
+                    : ResponseEntity.status(503).build();
+        } catch (PaymentGatewayException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
 
-        } catch (StripeException e) {
-            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+    private static ResponseEntity<Map<String, Object>> checkoutFailed(Throwable failure) {
+        Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        if (cause instanceof TimeoutException || cause.getCause() instanceof TimeoutException) {
+            return ResponseEntity.status(504).body(Map.of("error", "Payment gateway timed out"));
+        }
+        if (cause instanceof PaymentGatewayUnavailableException) {
+            return ResponseEntity.status(503).body(Map.of("error", cause.getMessage()));
         }
+        return ResponseEntity.status(500).body(Map.of("error", String.valueOf(cause.getMessage())));
     }
 
     @GetMapping("/carts/{cartId}")
@@ -1,16 +1,28 @@
 package com.example.e_commerce_api.controller;
 
 import com.example.e_commerce_api.dto.ProductDTO;
+import com.example.e_commerce_api.dto.ProductImportReportDTO;
+import com.example.e_commerce_api.dto.ProductPageDTO;
+import com.example.e_commerce_api.dto.ProductSuggestionDTO;
 import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.service.ProductExportService;
+import com.example.e_commerce_api.service.ProductFileFormat;
+import com.example.e_commerce_api.service.ProductImportService;
 import com.example.e_commerce_api.service.ProductService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.bind.annotation.*;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -21,6 +33,10 @@ public class ProductController {
 
     private final ProductService productService;
 
+    private final ProductImportService productImportService;
+
+    private final ProductExportService productExportService;
+
     @PostMapping
     @Operation(summary = "Inserts a new product into the system", description = "Creates a new product with the provided details")
     @ApiResponse(responseCode = "200", description = "Product created successfully")
@@ -36,11 +52,64 @@ public class ProductController {
         return ResponseEntity.ok(product);
     }
 
+    @PostMapping(value = "/import", consumes = {"application/x-ndjson", "text/csv"})
+    @Operation(summary = "Imports products in bulk", description = "Streams NDJSON or CSV rows from the request body; rows with an id update that product, rows without one are inserted")
+    @ApiResponse(responseCode = "200", description = "Import finished, per-row errors are listed in the report")
+    @ApiResponse(responseCode = "400", description = "Unsupported content type or invalid CSV header")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<ProductImportReportDTO> importProducts(HttpServletRequest request) throws IOException {
+        try {
+            var format = ProductFileFormat.fromMediaType(request.getContentType());
+            return ResponseEntity.ok(productImportService.importProducts(request.getInputStream(), format));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Exports the full catalog", description = "Streams every product ordered by ID as NDJSON or CSV using a database cursor")
+    @ApiResponse(responseCode = "200", description = "Catalog stream started")
+    @ApiResponse(responseCode = "400", description = "Unsupported format")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "ndjson") String format){
+        ProductFileFormat fileFormat;
+        try {
+            fileFormat = ProductFileFormat.fromName(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = output -> productExportService.export(output, fileFormat);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fileFormat.getMediaType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products." + fileFormat.name().toLowerCase())
+                .body(body);
+    }
+
     @GetMapping
-    @Operation(summary = "Retrieves all products", description = "Fetches a list of all products available in the system")
-    @ApiResponse(responseCode = "200", description = "List of products retrieved successfully")
-    public ResponseEntity<List<Product>> getAllProducts(){
-        return ResponseEntity.ok(productService.getAllProducts());
+    @Operation(summary = "Retrieves a page of products", description = "Fetches products ordered by ID using a cursor, optionally filtered by price range and stock availability")
+    @ApiResponse(responseCode = "200", description = "Page of products retrieved successfully")
+    public ResponseEntity<ProductPageDTO> getAllProducts(@RequestParam(required = false) Long cursor,
+                                                         @RequestParam(required = false) Integer size,
+                                                         @RequestParam(required = false) Double minPrice,
+                                                         @RequestParam(required = false) Double maxPrice,
+                                                         @RequestParam(defaultValue = "false") boolean inStock){
+        return ResponseEntity.ok(productService.getProductsPage(cursor, size, minPrice, maxPrice, inStock));
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Searches products by name and description", description = "Returns products ranked by relevance; the last term also matches as a prefix")
+    @ApiResponse(responseCode = "200", description = "Matching products retrieved successfully")
+    public ResponseEntity<List<Product>> searchProducts(@RequestParam("q") String query,
+                                                        @RequestParam(required = false) Integer limit){
+        return ResponseEntity.ok(productService.searchProducts(query, limit));
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Suggests product names for a typed prefix", description = "Returns up to 10 products whose name starts with the prefix, best stocked first")
+    @ApiResponse(responseCode = "200", description = "Suggestions retrieved successfully")
+    public ResponseEntity<List<ProductSuggestionDTO>> suggestProducts(@RequestParam String prefix,
+                                                                      @RequestParam(required = false) Integer limit){
+        return ResponseEntity.ok(productService.suggestProducts(prefix, limit));
     }
 
     @GetMapping("/{id}")
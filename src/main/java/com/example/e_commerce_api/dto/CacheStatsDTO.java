@@ -0,0 +1,10 @@
+package com.example.e_commerce_api.dto;
+
+public record CacheStatsDTO(
+        int size,
+        int maxSize,
+        long hits,
+        long misses,
+        long evictions
+) {
+}
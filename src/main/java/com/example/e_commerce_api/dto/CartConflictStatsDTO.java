@@ -0,0 +1,8 @@
+package com.example.e_commerce_api.dto;
+
+public record CartConflictStatsDTO(
+        long conflicts,
+        long recovered,
+        long exhausted
+) {
+}
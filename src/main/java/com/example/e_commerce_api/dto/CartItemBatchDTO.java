@@ -0,0 +1,10 @@
+package com.example.e_commerce_api.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CartItemBatchDTO(@NotEmpty @Size(max = 500) List<@Valid CartItemOperationDTO> operations) {
+}
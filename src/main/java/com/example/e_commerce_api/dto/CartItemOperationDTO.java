@@ -0,0 +1,12 @@
+package com.example.e_commerce_api.dto;
+
+import jakarta.validation.constraints.NotNull;
+
+public record CartItemOperationDTO(@NotNull Type op, @NotNull Long productId, int quantity) {
+
+    public enum Type {
+        ADD,
+        SET,
+        REMOVE
+    }
+}
@@ -7,6 +7,11 @@ import java.util.Set;
 public record CartItemResponseDTO (
         Long id,
         Double totalAmount,
-        Set<CartItem> items
+        Set<CartItem> items,
+        // set when buffered edits of this cart were refused on their way to the database and have been dropped
+        String rejectedEdits
 ){
+    public CartItemResponseDTO(Long id, Double totalAmount, Set<CartItem> items) {
+        this(id, totalAmount, items, null);
+    }
 }
@@ -11,5 +11,11 @@ public record CartResponseDTO(
         Double totalAmount,
         Set<CartItem> items,
         List<Payment> payments,
-        Long user
-) {}
+        Long user,
+        // set when buffered edits of this cart were refused on their way to the database and have been dropped
+        String rejectedEdits
+) {
+    public CartResponseDTO(Long id, Double totalAmount, Set<CartItem> items, List<Payment> payments, Long user) {
+        this(id, totalAmount, items, payments, user, null);
+    }
+}
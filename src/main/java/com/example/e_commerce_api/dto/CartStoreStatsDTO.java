@@ -0,0 +1,11 @@
+package com.example.e_commerce_api.dto;
+
+public record CartStoreStatsDTO(
+        int activeCarts,
+        long bufferedEdits,
+        long flushes,
+        long flushedLines,
+        long rejectedFlushes,
+        long writeThroughs
+) {
+}
@@ -0,0 +1,13 @@
+package com.example.e_commerce_api.dto;
+
+public record PaymentGatewayStatsDTO(
+        String circuitState,
+        int inFlight,
+        long calls,
+        long failures,
+        long timeouts,
+        long rejectedOpen,
+        long rejectedBulkhead,
+        long timesOpened
+) {
+}
@@ -0,0 +1,11 @@
+package com.example.e_commerce_api.dto;
+
+public record PaymentReconciliationStatsDTO(
+        long runs,
+        long checked,
+        long settled,
+        long lookupFailures,
+        long failedChunks,
+        long lastRunMillis
+) {
+}
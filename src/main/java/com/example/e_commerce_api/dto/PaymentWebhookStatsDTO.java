@@ -0,0 +1,11 @@
+package com.example.e_commerce_api.dto;
+
+public record PaymentWebhookStatsDTO(
+        int queued,
+        long received,
+        long ignored,
+        long dropped,
+        long applied,
+        long failedBatches
+) {
+}
@@ -0,0 +1,4 @@
+package com.example.e_commerce_api.dto;
+
+public record ProductImportErrorDTO(long line, String message) {
+}
@@ -0,0 +1,13 @@
+package com.example.e_commerce_api.dto;
+
+import java.util.List;
+
+public record ProductImportReportDTO(
+        long processed,
+        long inserted,
+        long updated,
+        long failed,
+        List<ProductImportErrorDTO> errors,
+        boolean errorsTruncated
+) {
+}
@@ -0,0 +1,9 @@
+package com.example.e_commerce_api.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+public record ProductImportRowDTO(Long id, @NotBlank String name, String description,
+                                  @NotNull @PositiveOrZero Double price, @NotNull @PositiveOrZero Integer quantity) {
+}
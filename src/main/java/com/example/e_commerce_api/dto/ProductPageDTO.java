@@ -0,0 +1,11 @@
+package com.example.e_commerce_api.dto;
+
+import com.example.e_commerce_api.model.Product;
+
+import java.util.List;
+
+public record ProductPageDTO(
+        List<Product> items,
+        Long nextCursor
+) {
+}
@@ -0,0 +1,4 @@
+package com.example.e_commerce_api.dto;
+
+public record ProductSuggestionDTO(Long id, String name) {
+}
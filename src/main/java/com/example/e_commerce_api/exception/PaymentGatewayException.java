@@ -0,0 +1,29 @@
+package com.example.e_commerce_api.exception;
+
+public class PaymentGatewayException extends RuntimeException {
+
+    // set when the provider could not be reached or failed on its side, as opposed to rejecting the request
+    private final boolean transientFailure;
+
+    public PaymentGatewayException(String message) {
+        this(message, false);
+    }
+
+    public PaymentGatewayException(String message, boolean transientFailure) {
+        super(message);
+        this.transientFailure = transientFailure;
+    }
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        this(message, cause, false);
+    }
+
+    public PaymentGatewayException(String message, Throwable cause, boolean transientFailure) {
+        super(message, cause);
+        this.transientFailure = transientFailure;
+    }
+
+    public boolean isTransientFailure() {
+        return transientFailure;
+    }
+}
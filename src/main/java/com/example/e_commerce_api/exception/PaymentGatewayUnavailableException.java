@@ -0,0 +1,8 @@
+package com.example.e_commerce_api.exception;
+
+public class PaymentGatewayUnavailableException extends PaymentGatewayException {
+
+    public PaymentGatewayUnavailableException(String message) {
+        super(message);
+    }
+}
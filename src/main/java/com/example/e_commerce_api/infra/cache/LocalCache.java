@@ -0,0 +1,122 @@
+package com.example.e_commerce_api.infra.cache;
+
+import com.example.e_commerce_api.dto.CacheStatsDTO;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class LocalCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private long generation;
+
+    public LocalCache(int maxSize, Duration ttl) {
+        this(maxSize, ttl, System::nanoTime);
+    }
+
+    LocalCache(int maxSize, Duration ttl, LongSupplier clock) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        // access order turns the map into an LRU list: the eldest entry is the least recently read
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt - clock.getAsLong() <= 0) {
+            entries.remove(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value;
+    }
+
+    public synchronized void put(K key, V value) {
+        if (value == null) {
+            return;
+        }
+        entries.put(key, new Entry<>(value, clock.getAsLong() + ttlNanos));
+        if (entries.size() > maxSize) {
+            evictOverflow();
+        }
+    }
+
+    public synchronized long generation() {
+        return generation;
+    }
+
+    // only stores the value if nothing was invalidated since the caller read the generation,
+    // so a slow load cannot resurrect data that a concurrent write already invalidated
+    public synchronized void putIfGeneration(K key, V value, long expectedGeneration) {
+        if (generation == expectedGeneration) {
+            put(key, value);
+        }
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        generation++;
+    }
+
+    public synchronized void invalidateAll(Iterable<? extends K> keys) {
+        keys.forEach(entries::remove);
+        generation++;
+    }
+
+    public synchronized void invalidateAll() {
+        entries.clear();
+        generation++;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public CacheStatsDTO stats() {
+        return new CacheStatsDTO(size(), maxSize, hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    private void evictOverflow() {
+        long now = clock.getAsLong();
+        Iterator<Map.Entry<K, Entry<V>>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+        // opportunistically drop expired entries at the cold end while we are here
+        while (it.hasNext()) {
+            var next = it.next();
+            if (next.getValue().expiresAt - now > 0) {
+                break;
+            }
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+}
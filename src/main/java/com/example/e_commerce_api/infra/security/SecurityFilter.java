@@ -24,7 +24,7 @@ public class SecurityFilter extends OncePerRequestFilter {
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         String path = request.getRequestURI();
-        if (path.startsWith("/auth/login") || path.startsWith("/auth/register") ||
+        if (path.startsWith("/auth/login") || path.startsWith("/auth/register") || path.startsWith("/payments/webhook") ||
                 path.startsWith("/swagger") || path.startsWith("/v3/api-docs")) {
             filterChain.doFilter(request, response);
             return;
@@ -6,11 +6,15 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Entity
+@Table(indexes = @Index(name = "idx_cart_updated_at", columnList = "updated_at"))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -19,7 +23,18 @@ public class Cart {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-    private Double totalAmount = 0.0;
+
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
+    // kept in step with every item change, so reading the total never walks the items
+    @Column(name = "total_amount_cents", nullable = false, columnDefinition = "bigint default 0")
+    private long totalAmountCents;
+
+    // any item change bumps the version, so this moves with every edit and tells the reaper which carts were abandoned
+    @Column(name = "updated_at", nullable = false, columnDefinition = "timestamp(6) with time zone default current_timestamp")
+    private Instant updatedAt;
 
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<CartItem> items = new HashSet<>();
@@ -27,35 +42,75 @@ public class Cart {
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL)
     private List<Payment> payments;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
+    @Transient
+    private Map<Long, CartItem> itemsByProduct;
+
     public Cart(User user) {
         this.user = user;
     }
 
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        updatedAt = Instant.now();
+    }
+
+    public void setItems(Set<CartItem> items) {
+        this.items = items;
+        this.itemsByProduct = null;
+        items.forEach(item -> item.setCart(this));
+        this.totalAmountCents = items.stream().mapToLong(CartItem::getTotalPriceCents).sum();
+    }
+
+    public CartItem findItem(Long productId) {
+        return itemIndex().get(productId);
+    }
+
     public void addItem(CartItem item) {
-        items.add(item);
+        var index = itemIndex();
+        if (items.add(item)) {
+            totalAmountCents += item.getTotalPriceCents();
+        }
         item.setCart(this);
-        updateTotalAmount();
+        index.put(item.getProductId(), item);
     }
 
     public void removeItem(CartItem item) {
-        items.remove(item);
+        var index = itemIndex();
+        if (items.remove(item)) {
+            totalAmountCents -= item.getTotalPriceCents();
+        }
         item.setCart(null);
-        updateTotalAmount();
+        index.remove(item.getProductId());
     }
 
-    private void updateTotalAmount(){
-        this.totalAmount = items.stream().map(item -> {
-            Double unitPrice = item.getUnitPrice();
-            if(unitPrice == null) return 0.0;
-            return unitPrice * item.getQuantity();
-        }).reduce(0.0, Double::sum);
+    void itemTotalChanged(CartItem item, long delta) {
+        // an item that is not in the set yet is counted in full by addItem
+        if (items.contains(item)) {
+            totalAmountCents += delta;
+        }
     }
+
     public Double getTotalAmount() {
-        updateTotalAmount();
-        return totalAmount;
+        return Money.fromCents(totalAmountCents);
+    }
+
+    public void setTotalAmount(Double totalAmount) {
+        this.totalAmountCents = Money.toCents(totalAmount);
+    }
+
+    private Map<Long, CartItem> itemIndex() {
+        // rebuilt lazily after loading, and again if the item set was changed without going through this class
+        if (itemsByProduct == null || itemsByProduct.size() != items.size()) {
+            itemsByProduct = new HashMap<>();
+            for (CartItem item : items) {
+                itemsByProduct.put(item.getProductId(), item);
+            }
+        }
+        return itemsByProduct;
     }
 }
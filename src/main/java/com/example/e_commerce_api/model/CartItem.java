@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_cart_item_cart_product", columnNames = {"cart_id", "product_id"}))
 @Getter
 @Setter
 @AllArgsConstructor
@@ -17,21 +18,67 @@ public class CartItem {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Version
+    @JsonIgnore
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
 
     private int quantity;
-    private Double unitPrice;
-    private Double totalPrice;
 
-    @ManyToOne
+    @JsonIgnore
+    @Column(name = "unit_price_cents", nullable = false, columnDefinition = "bigint default 0")
+    private long unitPriceCents;
+
+    @JsonIgnore
+    @Column(name = "total_price_cents", nullable = false, columnDefinition = "bigint default 0")
+    private long totalPriceCents;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name="product_id")
     @JsonIgnore
     private Product product;
-    @ManyToOne(cascade = CascadeType.ALL)
+
+    // mirrors the product_id foreign key so lookups never have to initialise the product proxy
+    @Column(name = "product_id", insertable = false, updatable = false)
+    private Long productId;
+
+    @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JoinColumn(name = "cart_id")
     @JsonIgnore
     private Cart cart;
 
+    public void setProduct(Product product) {
+        this.product = product;
+        this.productId = product == null ? null : product.getId();
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+        recalculate();
+    }
+
+    public Double getUnitPrice() {
+        return Money.fromCents(unitPriceCents);
+    }
+
+    public void setUnitPrice(Double unitPrice) {
+        this.unitPriceCents = Money.toCents(unitPrice);
+        recalculate();
+    }
+
+    public Double getTotalPrice() {
+        return Money.fromCents(totalPriceCents);
+    }
+
     public void setTotalPrice() {
-        this.totalPrice = this.unitPrice * this.quantity;
+        recalculate();
+    }
+
+    private void recalculate() {
+        long previous = totalPriceCents;
+        totalPriceCents = unitPriceCents * quantity;
+        if (cart != null && previous != totalPriceCents) {
+            cart.itemTotalChanged(this, totalPriceCents - previous);
+        }
     }
 }
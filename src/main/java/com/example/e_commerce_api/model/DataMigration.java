@@ -0,0 +1,23 @@
+package com.example.e_commerce_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// one row per one-off data conversion, written through JdbcTemplate; mapped so the schema is managed with the rest
+@Entity
+@Table(name = "data_migration")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class DataMigration {
+
+    @Id
+    @Column(length = 100)
+    private String name;
+
+    @Column(name = "applied_at", nullable = false)
+    private Instant appliedAt;
+}
@@ -0,0 +1,27 @@
+package com.example.e_commerce_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// written through JdbcTemplate by FlashSaleOwnership; mapped so the schema is managed with the rest
+@Entity
+@Table(name = "flash_sale_lease")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleLease {
+
+    @Id
+    @Column(length = 50)
+    private String name;
+
+    // the instance currently selling flash-sale stock from its counters
+    @Column(nullable = false, length = 36)
+    private String holder;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,25 @@
+package com.example.e_commerce_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// written through JdbcTemplate by FlashSaleStockService; mapped so the schema is managed with the rest
+@Entity
+@Table(name = "flash_sale_ledger", indexes = @Index(name = "idx_flash_sale_ledger_product_id", columnList = "product_id"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FlashSaleLedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "product_id", nullable = false)
+    private Long productId;
+
+    // units taken from the counters and not yet subtracted from product.quantity; negative for units handed back
+    @Column(nullable = false)
+    private int quantity;
+}
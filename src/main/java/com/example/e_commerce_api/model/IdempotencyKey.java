@@ -0,0 +1,33 @@
+package com.example.e_commerce_api.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// written through JdbcTemplate by CheckoutIdempotencyStore; mapped so the schema is managed with the rest
+@Entity
+@Table(name = "idempotency_key", indexes = @Index(name = "idx_idempotency_key_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key", length = 255)
+    private String key;
+
+    @Column(name = "cart_id", nullable = false)
+    private Long cartId;
+
+    // null while the first request is still talking to the gateway
+    @Column(name = "session_id")
+    private String sessionId;
+
+    @Column(name = "checkout_url", columnDefinition = "TEXT")
+    private String checkoutUrl;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
@@ -0,0 +1,22 @@
+package com.example.e_commerce_api.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+public final class Money {
+
+    private Money() {
+    }
+
+    public static long toCents(Double amount) {
+        if (amount == null) {
+            return 0;
+        }
+        // BigDecimal.valueOf uses the shortest decimal form of the double, so 19.99 becomes 1999 and not 1998
+        return BigDecimal.valueOf(amount).movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static Double fromCents(long cents) {
+        return cents / 100.0;
+    }
+}
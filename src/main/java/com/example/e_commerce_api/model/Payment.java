@@ -4,7 +4,11 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.time.Instant;
+
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_payment_session_id", columnNames = "session_id"),
+        indexes = @Index(name = "idx_payment_status_id", columnList = "status, id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -16,12 +20,14 @@ public class Payment {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @Column(name = "session_id")
     private String sessionId;
     @Column(columnDefinition = "TEXT")
     private String checkoutUrl;
     private String status;
     private Long amount;
-    @ManyToOne
+    private Instant expiresAt;
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cart_id")
     @JsonIgnore
     private Cart cart;
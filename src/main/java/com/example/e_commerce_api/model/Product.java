@@ -18,6 +18,8 @@ public class Product {
     private String description;
     private Double price;
     private Integer quantity;
+    @Column(nullable = false, columnDefinition = "boolean default false")
+    private boolean flashSale;
 
     public Product(String name, String description, Double price, Integer quantity) {
         this.name = name;
@@ -11,7 +11,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-@Table(name="users")
+@Table(name="users", indexes = @Index(name = "idx_users_active_cart_id", columnList = "active_cart_id"))
 @Entity
 @Data
 @Getter
@@ -30,6 +30,10 @@ public class User implements UserDetails {
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL)
     private List<Cart> carts = new ArrayList<>();
 
+    // the cart GET /carts/me resolves to; only ever set through a conditional update so a user has at most one
+    @Column(name = "active_cart_id")
+    private Long activeCartId;
+
     public User(String email, String encodedPassword, String name) {
         this.email = email;
         this.password = encodedPassword;
@@ -2,10 +2,22 @@ package com.example.e_commerce_api.repository;
 
 import com.example.e_commerce_api.model.CartItem;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem,Long> {
 
     void deleteAllByCartId(Long id);
+
+    @Modifying
+    @Query("""
+            DELETE FROM CartItem i WHERE i.cart.id IN (
+                SELECT c.id FROM Cart c
+                WHERE c.id IN :cartIds AND c.updatedAt < :cutoff AND NOT EXISTS (SELECT p.id FROM Payment p WHERE p.cart = c))""")
+    int deleteAllOfAbandonedCarts(Collection<Long> cartIds, Instant cutoff);
 }
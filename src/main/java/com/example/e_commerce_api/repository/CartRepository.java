@@ -1,9 +1,47 @@
 package com.example.e_commerce_api.repository;
 
 import com.example.e_commerce_api.model.Cart;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
 public interface CartRepository extends JpaRepository<Cart, Long> {
+
+    // one fetch plan per use case, so each path costs a fixed number of statements whatever the item count
+    @EntityGraph(attributePaths = {"items", "user"})
+    Optional<Cart> findForViewById(Long id);
+
+    // items are matched by their product_id column, so mutations never need the products themselves
+    @EntityGraph(attributePaths = "items")
+    Optional<Cart> findForUpdateById(Long id);
+
+    @EntityGraph(attributePaths = {"items", "items.product", "user"})
+    Optional<Cart> findForCheckoutById(Long id);
+
+    // reads the maintained total straight from the cart row, for the polled cart badge
+    @Query("SELECT c.totalAmountCents FROM Cart c WHERE c.id = :id")
+    Optional<Long> findTotalAmountCentsById(Long id);
+
+    // carts that went to checkout keep their payment history, so only carts without payments are abandoned
+    @Query("""
+            SELECT c.id FROM Cart c
+            WHERE c.updatedAt < :cutoff AND NOT EXISTS (SELECT p.id FROM Payment p WHERE p.cart = c)
+            ORDER BY c.updatedAt""")
+    List<Long> findAbandonedIds(Instant cutoff, Limit limit);
+
+    // both conditions are checked again so a cart edited or checked out after it was picked survives
+    @Modifying
+    @Query("""
+            DELETE FROM Cart c
+            WHERE c.id IN :ids AND c.updatedAt < :cutoff AND NOT EXISTS (SELECT p.id FROM Payment p WHERE p.cart = c)""")
+    int deleteAbandoned(Collection<Long> ids, Instant cutoff);
 }
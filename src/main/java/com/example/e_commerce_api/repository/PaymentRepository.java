@@ -2,9 +2,18 @@ package com.example.e_commerce_api.repository;
 
 import com.example.e_commerce_api.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Payment findBySessionId(String sessionId);
+
+    // only a payment still waiting for its session gets one; the sweeper may have expired it in the meantime
+    @Modifying
+    @Query("""
+            UPDATE Payment p SET p.sessionId = :sessionId, p.checkoutUrl = :checkoutUrl, p.status = 'CREATED'
+            WHERE p.id = :id AND p.status = 'PENDING'""")
+    int attachSession(Long id, String sessionId, String checkoutUrl);
 }
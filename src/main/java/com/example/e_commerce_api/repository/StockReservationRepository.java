@@ -0,0 +1,9 @@
+package com.example.e_commerce_api.repository;
+
+import com.example.e_commerce_api.model.StockReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+}
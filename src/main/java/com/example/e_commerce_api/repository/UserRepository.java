@@ -2,11 +2,42 @@ package com.example.e_commerce_api.repository;
 
 import com.example.e_commerce_api.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.Optional;
+
 @Repository
 public interface UserRepository extends JpaRepository<User,Long> {
 
     UserDetails findByEmail(String email);
+
+    @Query("SELECT u.activeCartId FROM User u WHERE u.id = :id")
+    Optional<Long> findActiveCartIdById(Long id);
+
+    // only one of several concurrent first visits wins the slot; the others adopt the winner's cart
+    @Modifying
+    @Query("UPDATE User u SET u.activeCartId = :cartId WHERE u.id = :id AND u.activeCartId IS NULL")
+    int claimActiveCart(Long id, Long cartId);
+
+    @Modifying
+    @Query("UPDATE User u SET u.activeCartId = NULL WHERE u.activeCartId = :cartId")
+    int releaseActiveCart(Long cartId);
+
+    // a paid cart is an order now, so its owner's next visit starts a fresh cart instead of editing it
+    @Modifying
+    @Query("""
+            UPDATE User u SET u.activeCartId = NULL
+            WHERE u.activeCartId IN (SELECT p.cart.id FROM Payment p WHERE p.sessionId IN :sessionIds AND p.status = 'PAID')""")
+    int releasePaidActiveCarts(Collection<String> sessionIds);
+
+    // run after the carts are gone, so a cart that survived its delete keeps its owner pointing at it
+    @Modifying
+    @Query("""
+            UPDATE User u SET u.activeCartId = NULL
+            WHERE u.activeCartId IN :cartIds AND NOT EXISTS (SELECT c.id FROM Cart c WHERE c.id = u.activeCartId)""")
+    int releaseDeletedActiveCarts(Collection<Long> cartIds);
 }
@@ -4,6 +4,7 @@ import com.example.e_commerce_api.model.Cart;
 import com.example.e_commerce_api.model.Payment;
 import com.example.e_commerce_api.repository.PaymentRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 public class PaymentService {
@@ -25,4 +26,16 @@ public class PaymentService {
 
         return paymentRepository.save(payment);
     }
+
+    // false when the payment is no longer PENDING, i.e. its reservation was already released
+    @Transactional
+    public boolean attachSession(Payment payment, String sessionId, String checkoutUrl) {
+        if (paymentRepository.attachSession(payment.getId(), sessionId, checkoutUrl) == 0) {
+            return false;
+        }
+        payment.setSessionId(sessionId);
+        payment.setCheckoutUrl(checkoutUrl);
+        payment.setStatus("CREATED");
+        return true;
+    }
 }
@@ -0,0 +1,85 @@
+package com.example.e_commerce_api.service;
+
+import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+@Service
+@RequiredArgsConstructor
+public class ProductExportService {
+
+    public static final String CSV_HEADER = "id,name,description,price,quantity";
+
+    private static final int FLUSH_EVERY = 1000;
+
+    private final ProductRepository productRepository;
+
+    private final EntityManager entityManager;
+
+    private final ObjectMapper objectMapper;
+
+    @Transactional(readOnly = true)
+    public long export(OutputStream output, ProductFileFormat format) throws IOException {
+        var writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (format == ProductFileFormat.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+        long[] written = {0};
+        try (var products = productRepository.streamAllOrderedById()) {
+            products.forEach(product -> {
+                try {
+                    writeRow(writer, product, format);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                // rows are read-only, detaching them keeps the persistence context from growing with the catalog
+                entityManager.detach(product);
+                if (++written[0] % FLUSH_EVERY == 0) {
+                    flush(writer);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        return written[0];
+    }
+
+    private void writeRow(Writer writer, Product product, ProductFileFormat format) throws IOException {
+        if (format == ProductFileFormat.NDJSON) {
+            writer.write(objectMapper.writeValueAsString(product));
+        } else {
+            writer.write(String.valueOf(product.getId()));
+            writer.write(',');
+            writer.write(ProductCsv.escape(product.getName()));
+            writer.write(',');
+            writer.write(ProductCsv.escape(product.getDescription()));
+            writer.write(',');
+            writer.write(product.getPrice() == null ? "" : String.valueOf(product.getPrice()));
+            writer.write(',');
+            writer.write(product.getQuantity() == null ? "" : String.valueOf(product.getQuantity()));
+        }
+        writer.write('\n');
+    }
+
+    private static void flush(Writer writer) {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.e_commerce_api.service;
+
+import org.springframework.http.MediaType;
+
+public enum ProductFileFormat {
+    NDJSON("application/x-ndjson"),
+    CSV("text/csv");
+
+    private final String mediaType;
+
+    ProductFileFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public String getMediaType() {
+        return mediaType;
+    }
+
+    public static ProductFileFormat fromName(String name) {
+        for (ProductFileFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported format " + name + ", expected ndjson or csv");
+    }
+
+    public static ProductFileFormat fromMediaType(String contentType) {
+        if (contentType != null) {
+            var type = MediaType.parseMediaType(contentType);
+            for (ProductFileFormat format : values()) {
+                if (MediaType.parseMediaType(format.mediaType).equalsTypeAndSubtype(type)) {
+                    return format;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Unsupported content type " + contentType + ", expected application/x-ndjson or text/csv");
+    }
+}
@@ -0,0 +1,333 @@
+package com.example.e_commerce_api.service;
+
+import com.example.e_commerce_api.dto.ProductImportErrorDTO;
+import com.example.e_commerce_api.dto.ProductImportReportDTO;
+import com.example.e_commerce_api.dto.ProductImportRowDTO;
+import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.service.inventory.FlashSaleStockService;
+import com.example.e_commerce_api.service.search.ProductIndexer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class ProductImportService {
+
+    public static final int BATCH_SIZE = 500;
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    // a quoted field still open after this many lines or characters is a stray quote, not a long description
+    public static final int MAX_RECORD_LINES = 100;
+    public static final int MAX_RECORD_CHARS = 64 * 1024;
+
+    private static final String INSERT_SQL = "INSERT INTO product (name, description, price, quantity) VALUES (?, ?, ?, ?)";
+    private static final String UPDATE_SQL = "UPDATE product SET name = ?, description = ?, price = ?, quantity = ? WHERE id = ?";
+    private static final String LOCK_FLASH_SALE_SQL = "SELECT id, quantity FROM product WHERE flash_sale = true AND id IN (%s) ORDER BY id FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final ProductService productService;
+
+    private final ProductIndexer productIndexer;
+
+    private final FlashSaleStockService flashSaleStockService;
+
+    public ProductImportReportDTO importProducts(InputStream input, ProductFileFormat format) throws IOException {
+        var reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        var report = new Report();
+        long lineNumber = 0;
+        RowParser parser;
+        if (format == ProductFileFormat.CSV) {
+            var header = reader.readLine();
+            lineNumber++;
+            if (header == null) {
+                return report.toDTO();
+            }
+            parser = csvParser(header);
+        } else {
+            parser = line -> objectMapper.readValue(line, ProductImportRowDTO.class);
+        }
+
+        // rows are written chunk by chunk so memory stays bounded by BATCH_SIZE whatever the file size
+        List<Row> chunk = new ArrayList<>(BATCH_SIZE);
+        // lines read ahead for a record that turned out malformed, parsed again on their own
+        Deque<String> replay = new ArrayDeque<>();
+        String line;
+        while ((line = nextLine(reader, replay)) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            long recordLine = lineNumber;
+            if (format == ProductFileFormat.CSV && ProductCsv.endsInsideQuotes(line)) {
+                // a quoted field with a line break spans several physical lines, as the export writes it
+                var record = new StringBuilder(line);
+                List<String> continuation = new ArrayList<>();
+                String next;
+                while (ProductCsv.endsInsideQuotes(record) && continuation.size() < MAX_RECORD_LINES
+                        && record.length() <= MAX_RECORD_CHARS && (next = nextLine(reader, replay)) != null) {
+                    continuation.add(next);
+                    record.append('\n').append(next);
+                }
+                if (ProductCsv.endsInsideQuotes(record)) {
+                    // only this line is lost; the lines after it are read again as records of their own
+                    report.processed++;
+                    report.fail(recordLine, "Malformed CSV: quoted field is not closed");
+                    for (int i = continuation.size() - 1; i >= 0; i--) {
+                        replay.addFirst(continuation.get(i));
+                    }
+                    continue;
+                }
+                lineNumber += continuation.size();
+                line = record.toString();
+            }
+            report.processed++;
+            try {
+                chunk.add(new Row(recordLine, validate(parser.parse(line))));
+            } catch (JsonProcessingException e) {
+                report.fail(lineNumber, "Malformed JSON: " + e.getOriginalMessage());
+            } catch (IllegalArgumentException e) {
+                report.fail(recordLine, e.getMessage());
+            }
+            if (chunk.size() == BATCH_SIZE) {
+                flush(chunk, report);
+                chunk.clear();
+            }
+        }
+        flush(chunk, report);
+        return report.toDTO();
+    }
+
+    private static String nextLine(BufferedReader reader, Deque<String> replay) throws IOException {
+        return replay.isEmpty() ? reader.readLine() : replay.poll();
+    }
+
+    private void flush(List<Row> chunk, Report report) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        var inserts = chunk.stream().filter(row -> row.data().id() == null).toList();
+        var updates = chunk.stream().filter(row -> row.data().id() != null).toList();
+        ChunkResult result;
+        try {
+            result = transactionTemplate.execute(status -> new ChunkResult(insert(inserts), update(updates)));
+        } catch (DataAccessException e) {
+            if (chunk.size() == 1) {
+                report.fail(chunk.get(0).line(), "Row rejected: " + e.getMostSpecificCause().getMessage());
+                return;
+            }
+            // the whole chunk rolled back; replay it row by row so only the offending rows are reported
+            chunk.forEach(row -> flush(List.of(row), report));
+            return;
+        }
+
+        report.inserted += result.inserted().size();
+        var updated = new ArrayList<Product>();
+        for (int i = 0; i < updates.size(); i++) {
+            if (result.updateCounts()[i] == 0) {
+                report.fail(updates.get(i).line(), "Product with id " + updates.get(i).data().id() + " not found");
+            } else {
+                updated.add(toProduct(updates.get(i).data().id(), updates.get(i).data()));
+            }
+        }
+        report.updated += updated.size();
+
+        productService.evictFromCache(updated.stream().map(Product::getId).toList());
+        result.inserted().forEach(productIndexer::onSaved);
+        updated.forEach(productIndexer::onSaved);
+    }
+
+    private List<Product> insert(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        var keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                connection -> connection.prepareStatement(INSERT_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        bindProduct(ps, rows.get(i).data());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return rows.size();
+                    }
+                },
+                keyHolder);
+        var keys = keyHolder.getKeyList();
+        var inserted = new ArrayList<Product>(rows.size());
+        for (int i = 0; i < rows.size() && i < keys.size(); i++) {
+            var id = ((Number) keys.get(i).values().iterator().next()).longValue();
+            inserted.add(toProduct(id, rows.get(i).data()));
+        }
+        return inserted;
+    }
+
+    private int[] update(List<Row> rows) {
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+        // flash-sale counters are derived from the stored quantity, so they have to follow the change;
+        // the row locks keep checkouts from moving the quantity between reading it and overwriting it
+        Map<Long, Integer> flashSaleQuantities = new HashMap<>();
+        var ids = rows.stream().map(row -> row.data().id()).distinct().toList();
+        jdbcTemplate.query(LOCK_FLASH_SALE_SQL.formatted(String.join(", ", Collections.nCopies(ids.size(), "?"))),
+                rs -> {
+                    flashSaleQuantities.put(rs.getLong("id"), rs.getInt("quantity"));
+                }, ids.toArray());
+
+        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                var data = rows.get(i).data();
+                bindProduct(ps, data);
+                ps.setLong(5, data.id());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+        for (var row : rows) {
+            var previous = flashSaleQuantities.put(row.data().id(), row.data().quantity());
+            if (previous != null) {
+                flashSaleStockService.restock(row.data().id(), row.data().quantity() - previous);
+            }
+        }
+        return counts;
+    }
+
+    private static void bindProduct(PreparedStatement ps, ProductImportRowDTO data) throws SQLException {
+        ps.setString(1, data.name());
+        if (data.description() == null) {
+            ps.setNull(2, Types.VARCHAR);
+        } else {
+            ps.setString(2, data.description());
+        }
+        ps.setDouble(3, data.price());
+        ps.setInt(4, data.quantity());
+    }
+
+    private ProductImportRowDTO validate(ProductImportRowDTO row) {
+        var violations = validator.validate(row);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+        return row;
+    }
+
+    private static RowParser csvParser(String headerLine) {
+        Map<String, Integer> columns = new HashMap<>();
+        var header = ProductCsv.parseLine(headerLine);
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : List.of("name", "price", "quantity")) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header is missing the '" + required + "' column");
+            }
+        }
+        return line -> {
+            var fields = ProductCsv.parseLine(line);
+            return new ProductImportRowDTO(
+                    parseNumber(field(fields, columns.get("id")), "id", Long::valueOf),
+                    field(fields, columns.get("name")),
+                    field(fields, columns.get("description")),
+                    parseNumber(field(fields, columns.get("price")), "price", Double::valueOf),
+                    parseNumber(field(fields, columns.get("quantity")), "quantity", Integer::valueOf)
+            );
+        };
+    }
+
+    private static String field(List<String> fields, Integer column) {
+        if (column == null || column >= fields.size()) {
+            return null;
+        }
+        return fields.get(column);
+    }
+
+    private static <T> T parseNumber(String value, String column, Function<String, T> parser) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return parser.apply(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(column + ": '" + value + "' is not a number");
+        }
+    }
+
+    private static Product toProduct(Long id, ProductImportRowDTO data) {
+        var product = new Product(data.name(), data.description(), data.price(), data.quantity());
+        product.setId(id);
+        return product;
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        ProductImportRowDTO parse(String line) throws JsonProcessingException;
+    }
+
+    private record Row(long line, ProductImportRowDTO data) {
+    }
+
+    private record ChunkResult(List<Product> inserted, int[] updateCounts) {
+    }
+
+    private static final class Report {
+        private long processed;
+        private long inserted;
+        private long updated;
+        private long failed;
+        private final List<ProductImportErrorDTO> errors = new ArrayList<>();
+
+        private void fail(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ProductImportErrorDTO(line, message));
+            }
+        }
+
+        private ProductImportReportDTO toDTO() {
+            return new ProductImportReportDTO(processed, inserted, updated, failed, errors, failed > errors.size());
+        }
+    }
+}
@@ -1,45 +1,209 @@
 package com.example.e_commerce_api.service;
 
+import com.example.e_commerce_api.dto.CacheStatsDTO;
+import com.example.e_commerce_api.infra.cache.LocalCache;
+import com.example.e_commerce_api.infra.cache.SingleFlight;
 import com.example.e_commerce_api.model.Product;
 import com.example.e_commerce_api.repository.ProductRepository;
+import com.example.e_commerce_api.service.inventory.FlashSaleStockService;
+import com.example.e_commerce_api.service.search.ProductIndexer;
+import com.example.e_commerce_api.service.search.ProductSearchIndex;
+import com.example.e_commerce_api.service.search.ProductSuggestIndex;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import com.example.e_commerce_api.dto.ProductDTO;
+import com.example.e_commerce_api.dto.ProductPageDTO;
+import com.example.e_commerce_api.dto.ProductSuggestionDTO;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductService {
 
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int CACHE_MAX_SIZE = 10_000;
+    public static final Duration CACHE_TTL = Duration.ofMinutes(10);
+
     private final ProductRepository productRepository;
 
-    public List<Product> getAllProducts() {
-        return productRepository.findAll();
+    private final ProductSearchIndex productSearchIndex;
+
+    private final ProductSuggestIndex productSuggestIndex;
+
+    private final ProductIndexer productIndexer;
+
+    private final FlashSaleStockService flashSaleStockService;
+
+    private final LocalCache<Long, Product> productCache = new LocalCache<>(CACHE_MAX_SIZE, CACHE_TTL);
+
+    private final SingleFlight<Long, Product> productLoads = new SingleFlight<>();
+
+    public ProductPageDTO getProductsPage(Long cursor, Integer size, Double minPrice, Double maxPrice, boolean inStock) {
+        int pageSize = size == null || size <= 0 ? DEFAULT_PAGE_SIZE : Math.min(size, MAX_PAGE_SIZE);
+        long after = cursor == null ? 0L : cursor;
+
+        // one extra row tells us whether another page exists without a count query
+        var rows = productRepository.findPageAfter(after, minPrice, maxPrice, inStock, PageRequest.of(0, pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new ProductPageDTO(rows, null);
+        }
+        var items = rows.subList(0, pageSize);
+        return new ProductPageDTO(items, items.get(pageSize - 1).getId());
     }
 
     public Product saveProduct(Product product) {
-        return productRepository.save(product);
+        var saved = productRepository.save(product);
+        if (saved != null && saved.getId() != null) {
+            afterCommit(() -> {
+                productCache.invalidate(saved.getId());
+                productIndexer.onSaved(saved);
+            });
+        }
+        return saved;
     }
 
+    // the cache holds detached copies and every caller gets its own, so no request can change or attach another's product
     public Product getProductById(Long id) {
-        return productRepository.findById(id).orElse(null);
+        var cached = productCache.get(id);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        return copyOf(productLoads.load(id, () -> {
+            long generation = productCache.generation();
+            var product = productRepository.findById(id).map(ProductService::copyOf).orElse(null);
+            productCache.putIfGeneration(id, product, generation);
+            return product;
+        }));
+    }
+
+    public Map<Long, Product> getProductsByIds(Collection<Long> ids) {
+        Map<Long, Product> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (Long id : ids) {
+            var cached = productCache.get(id);
+            if (cached != null) {
+                found.put(id, copyOf(cached));
+            } else {
+                misses.add(id);
+            }
+        }
+        if (!misses.isEmpty()) {
+            // cache misses are fetched together instead of one findById per id
+            long generation = productCache.generation();
+            for (Product product : productRepository.findAllById(misses)) {
+                // the cache gets the detached copy; the managed entity is handed out, as searchProducts does
+                productCache.putIfGeneration(product.getId(), copyOf(product), generation);
+                found.put(product.getId(), product);
+            }
+        }
+        return found;
+    }
+
+    // cached quantities lag behind reservations made in SQL, so stock checks read the table
+    public Map<Long, Integer> getAvailableQuantities(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (Object[] row : productRepository.findQuantitiesByIds(ids)) {
+            quantities.put((Long) row[0], row[1] == null ? 0 : (Integer) row[1]);
+        }
+        return quantities;
     }
+
+    public int getAvailableQuantity(Long id) {
+        return getAvailableQuantities(List.of(id)).getOrDefault(id, 0);
+    }
+
+    public void evictFromCache(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            productCache.invalidateAll(ids);
+        }
+    }
+
+    public CacheStatsDTO getCacheStats() {
+        return productCache.stats();
+    }
+    @Transactional
     public Product patchProduct(Long id, ProductDTO productDTO){
-        var existingProduct = getProductById(id);
+        // read past the cache so a failed save never leaves a half-patched shared instance behind; the row lock
+        // keeps the quantity delta exact while checkouts and other edits run against the same product
+        var existingProduct = productRepository.findForUpdateById(id).orElse(null);
         if(existingProduct == null){
             return null;
         }
+        int previousQuantity = existingProduct.getQuantity() == null ? 0 : existingProduct.getQuantity();
         existingProduct.setName(productDTO.name());
         existingProduct.setDescription(productDTO.description());
         existingProduct.setPrice(productDTO.price());
         existingProduct.setQuantity(productDTO.quantity());
 
-        return productRepository.save(existingProduct);
+        var saved = productRepository.save(existingProduct);
+        if (saved.isFlashSale()) {
+            flashSaleStockService.restock(id, productDTO.quantity() - previousQuantity);
+        }
+        afterCommit(() -> {
+            productCache.invalidate(id);
+            productIndexer.onSaved(saved);
+        });
+        return saved;
     }
     public void deleteProduct(Long id) {
         productRepository.deleteById(id);
+        afterCommit(() -> {
+            flashSaleStockService.forget(id);
+            productCache.invalidate(id);
+            productIndexer.onDeleted(id);
+        });
+    }
+
+    public List<Product> searchProducts(String query, Integer limit) {
+        int maxResults = limit == null || limit <= 0 ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+        var ids = productSearchIndex.search(query, maxResults);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Product> byId = productRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        return ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+    }
+
+    public List<ProductSuggestionDTO> suggestProducts(String prefix, Integer limit) {
+        int maxResults = limit == null || limit <= 0 ? ProductSuggestIndex.MAX_SUGGESTIONS : limit;
+        return productSuggestIndex.suggest(prefix, maxResults);
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static Product copyOf(Product product) {
+        return product == null ? null : new Product(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getQuantity(), product.isFlashSale());
     }
 }
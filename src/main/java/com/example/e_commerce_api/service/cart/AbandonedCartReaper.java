@@ -0,0 +1,53 @@
+package com.example.e_commerce_api.service.cart;
+
+import com.example.e_commerce_api.repository.CartItemRepository;
+import com.example.e_commerce_api.repository.CartRepository;
+import com.example.e_commerce_api.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+
+@Component
+@RequiredArgsConstructor
+public class AbandonedCartReaper {
+
+    public static final int BATCH_SIZE = 500;
+
+    private final CartRepository cartRepository;
+
+    private final CartItemRepository cartItemRepository;
+
+    private final UserRepository userRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${cart.reaper.max-idle-hours:168}")
+    private long maxIdleHours;
+
+    @Scheduled(fixedDelayString = "${cart.reaper.interval-ms:3600000}")
+    public int reap() {
+        var cutoff = Instant.now().minus(Duration.ofHours(maxIdleHours));
+        int reaped = 0;
+        int picked;
+        do {
+            // a short transaction per chunk keeps lock time and undo size bounded however many carts piled up
+            var ids = cartRepository.findAbandonedIds(cutoff, Limit.of(BATCH_SIZE));
+            picked = ids.size();
+            if (picked > 0) {
+                reaped += transactionTemplate.execute(status -> {
+                    cartItemRepository.deleteAllOfAbandonedCarts(ids, cutoff);
+                    int deleted = cartRepository.deleteAbandoned(ids, cutoff);
+                    userRepository.releaseDeletedActiveCarts(ids);
+                    return deleted;
+                });
+            }
+        } while (picked == BATCH_SIZE);
+        return reaped;
+    }
+}
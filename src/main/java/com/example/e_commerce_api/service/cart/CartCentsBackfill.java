@@ -0,0 +1,68 @@
+package com.example.e_commerce_api.service.cart;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+// ddl-auto adds the cents columns with a default of 0 but never fills them, so carts written before the switch
+// would read back as free; this converts them once from the old Double columns, before the server takes traffic
+@Component
+@DependsOn("entityManagerFactory")
+@RequiredArgsConstructor
+public class CartCentsBackfill {
+
+    static final String MIGRATION = "cart-cents-backfill";
+
+    private static final String APPLIED_SQL = "SELECT COUNT(*) FROM data_migration WHERE name = ?";
+    private static final String MARK_SQL = "INSERT INTO data_migration (name, applied_at) VALUES (?, ?)";
+    // same rounding as Money.toCents, and the line total follows CartItem's unit * quantity rule
+    private static final String ITEMS_SQL = """
+            UPDATE cart_item SET unit_price_cents = ROUND(unit_price * 100), total_price_cents = ROUND(unit_price * 100) * quantity
+            WHERE unit_price_cents = 0 AND unit_price <> 0""";
+    // recomputed from the converted lines rather than the stored total_amount, so a cart always equals its items
+    private static final String CARTS_SQL = """
+            UPDATE cart SET total_amount_cents = (SELECT SUM(i.total_price_cents) FROM cart_item i WHERE i.cart_id = cart.id)
+            WHERE total_amount_cents = 0 AND EXISTS (SELECT 1 FROM cart_item i WHERE i.cart_id = cart.id AND i.total_price_cents <> 0)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void backfill() {
+        if (jdbcTemplate.queryForObject(APPLIED_SQL, Integer.class, MIGRATION) > 0) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // the marker goes first: a second instance starting at the same time fails on it and skips the scans
+                jdbcTemplate.update(MARK_SQL, MIGRATION, Timestamp.from(Instant.now()));
+                // a schema created with the cents columns never had the Double ones and has nothing to convert
+                if (hasLegacyPrices() && jdbcTemplate.update(ITEMS_SQL) > 0) {
+                    jdbcTemplate.update(CARTS_SQL);
+                }
+            });
+        } catch (DuplicateKeyException e) {
+            // another instance applied it
+        }
+    }
+
+    private boolean hasLegacyPrices() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            var metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers() ? "CART_ITEM" : "cart_item";
+            String column = metaData.storesUpperCaseIdentifiers() ? "UNIT_PRICE" : "unit_price";
+            try (var columns = metaData.getColumns(connection.getCatalog(), null, table, column)) {
+                return columns.next();
+            }
+        }));
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.e_commerce_api.service.cart;
 
+import com.example.e_commerce_api.dto.CartItemOperationDTO;
+import com.example.e_commerce_api.dto.CartItemResponseDTO;
 import com.example.e_commerce_api.exception.ResourceNotFoundException;
 import com.example.e_commerce_api.model.Cart;
 import com.example.e_commerce_api.model.CartItem;
@@ -9,6 +11,14 @@ import com.example.e_commerce_api.repository.CartRepository;
 import com.example.e_commerce_api.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -23,17 +33,16 @@ public class CartItemService implements ICartItemService{
     private final CartRepository cartRepository;
 
     @Override
-    public void addItemToCart(Long cartId, Long productId, int quantity) {
-        Cart cart = cartService.getCart(cartId);
+    @Transactional
+    public CartItemResponseDTO addItemToCart(Long cartId, Long productId, int quantity) {
+        Cart cart = cartService.getCartForUpdate(cartId);
         Product product = productService.getProductById(productId);
-        if (product.getQuantity() < quantity){
+        if (productService.getAvailableQuantity(productId) < quantity){
             throw new IllegalArgumentException("Not enough stock for product with id " + productId);
         }
-        CartItem cartItem = cart.getItems()
-                .stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst().orElse(new CartItem());
-        if(cartItem.getId() == null){
+        CartItem cartItem = cart.findItem(productId);
+        if(cartItem == null){
+            cartItem = new CartItem();
             cartItem.setCart(cart);
             cartItem.setProduct(product);
             cartItem.setQuantity(quantity);
@@ -45,44 +54,126 @@ public class CartItemService implements ICartItemService{
         cart.addItem(cartItem);
         cartItemRepository.save(cartItem);
         cartRepository.save(cart);
-
+        return toResponse(cart);
     }
 
     @Override
+    @Transactional
     public void removeItemFromCart(Long cartId, Long productId) {
-        Cart cart = cartService.getCart(cartId);
-        CartItem itemToRemove = getCartItem(cartId, productId);
+        Cart cart = cartService.getCartForUpdate(cartId);
+        CartItem itemToRemove = findItem(cart, productId);
             cart.removeItem(itemToRemove);
             cartRepository.save(cart);
     }
 
     @Override
-    public void updateItemQuantity(Long cartId, Long productId, int quantity) {
-        Cart cart = cartService.getCart(cartId);
+    @Transactional
+    public CartItemResponseDTO updateItemQuantity(Long cartId, Long productId, int quantity) {
+        Cart cart = cartService.getCartForUpdate(cartId);
         Product product = productService.getProductById(productId);
-        if (product.getQuantity() < quantity){
+        if (productService.getAvailableQuantity(productId) < quantity){
             throw new IllegalArgumentException("Not enough stock for product with id " + productId);
         }
-        cart.getItems().stream().filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .ifPresent(item -> {
-                    item.setQuantity(quantity);
-                    item.setUnitPrice(item.getProduct().getPrice());
-                    item.setTotalPrice();
-                });
-        Double totalAmount = cart.getTotalAmount();
-        cart.setTotalAmount(totalAmount);
+        CartItem item = cart.findItem(productId);
+        if (item != null) {
+            item.setQuantity(quantity);
+            item.setUnitPrice(product.getPrice());
+            item.setTotalPrice();
+        }
         cartRepository.save(cart);
+        return toResponse(cart);
+    }
+
+    @Override
+    @Transactional
+    public CartItemResponseDTO applyOperations(Long cartId, List<CartItemOperationDTO> operations) {
+        Cart cart = cartService.getCartForUpdate(cartId);
+        Set<Long> productIds = operations.stream()
+                .filter(operation -> operation.op() != CartItemOperationDTO.Type.REMOVE)
+                .map(CartItemOperationDTO::productId)
+                .collect(Collectors.toSet());
+        var products = productService.getProductsByIds(productIds);
+        var available = productService.getAvailableQuantities(productIds);
+        applyPlan(cart, plan(cart, operations, products, available), products);
+        // new lines are persisted by cascade, so everything goes out in the single flush at commit
+        return toResponse(cart);
+    }
+
+    // validates the whole batch before touching the cart and returns the final quantity per product, 0 meaning removed
+    static Map<Long, Integer> plan(Cart cart, List<CartItemOperationDTO> operations, Map<Long, Product> products,
+                                   Map<Long, Integer> available) {
+        return plan(productId -> {
+            CartItem item = cart.findItem(productId);
+            return item == null ? 0 : item.getQuantity();
+        }, operations, products, available);
+    }
+
+    // currentQuantity gives the quantity a product has in the cart before this batch, 0 when it is not in it
+    static Map<Long, Integer> plan(Function<Long, Integer> currentQuantity, List<CartItemOperationDTO> operations,
+                                   Map<Long, Product> products, Map<Long, Integer> available) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (CartItemOperationDTO operation : operations) {
+            Long productId = operation.productId();
+            if (operation.op() == CartItemOperationDTO.Type.REMOVE) {
+                quantities.put(productId, 0);
+                continue;
+            }
+            if (operation.quantity() <= 0) {
+                throw new IllegalArgumentException("Quantity for product with id " + productId + " must be positive");
+            }
+            Product product = products.get(productId);
+            if (product == null) {
+                throw new ResourceNotFoundException("Product with id " + productId + " not found");
+            }
+            int quantity = operation.quantity();
+            if (operation.op() == CartItemOperationDTO.Type.ADD) {
+                quantity += quantities.containsKey(productId) ? quantities.get(productId) : currentQuantity.apply(productId);
+            }
+            if (available.getOrDefault(productId, 0) < quantity) {
+                throw new IllegalArgumentException("Not enough stock for product with id " + productId);
+            }
+            quantities.put(productId, quantity);
+        }
+        return quantities;
+    }
+
+    static void applyPlan(Cart cart, Map<Long, Integer> quantities, Map<Long, Product> products) {
+        quantities.forEach((productId, quantity) -> {
+            CartItem item = cart.findItem(productId);
+            if (quantity == 0) {
+                if (item != null) {
+                    cart.removeItem(item);
+                }
+                return;
+            }
+            Product product = products.get(productId);
+            if (item == null) {
+                item = new CartItem();
+                item.setProduct(product);
+                item.setUnitPrice(product.getPrice());
+                item.setQuantity(quantity);
+                cart.addItem(item);
+            } else {
+                item.setUnitPrice(product.getPrice());
+                item.setQuantity(quantity);
+            }
+        });
     }
 
     @Override
     public CartItem getCartItem(Long cartId, Long productId){
-        Cart cart = cartService.getCart(cartId);
-        return cart.getItems()
-                .stream()
-                .filter(item -> item.getProduct().getId().equals(productId))
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("Item with id " + productId + " not found in cart"));
+        return findItem(cartService.getCartForUpdate(cartId), productId);
+    }
+
+    private static CartItem findItem(Cart cart, Long productId) {
+        CartItem item = cart.findItem(productId);
+        if (item == null) {
+            throw new ResourceNotFoundException("Item with id " + productId + " not found in cart");
+        }
+        return item;
+    }
 
+    private static CartItemResponseDTO toResponse(Cart cart) {
+        return new CartItemResponseDTO(cart.getId(), cart.getTotalAmount(), cart.getItems());
     }
 }
@@ -1,12 +1,23 @@
 package com.example.e_commerce_api.service.cart;
 
+import com.example.e_commerce_api.dto.CartResponseDTO;
 import com.example.e_commerce_api.exception.ResourceNotFoundException;
+import com.example.e_commerce_api.infra.cache.SingleFlight;
 import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.Money;
+import com.example.e_commerce_api.model.Payment;
 import com.example.e_commerce_api.model.User;
 import com.example.e_commerce_api.repository.CartItemRepository;
 import com.example.e_commerce_api.repository.CartRepository;
+import com.example.e_commerce_api.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
 
 @Service
 @RequiredArgsConstructor
@@ -14,6 +25,10 @@ public class CartService implements ICartService{
 
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
+    private final UserRepository userRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    private final SingleFlight<Long, CartResponseDTO> cartViewLoads = new SingleFlight<>();
 
     @Override
     public Cart getCart(Long id) {
@@ -21,18 +36,52 @@ public class CartService implements ICartService{
                 .orElseThrow(() -> new ResourceNotFoundException("Cart with id " + id + " not found"));
     }
 
+    @Override
+    public CartResponseDTO getCartView(Long id) {
+        // only the loader holds a connection; coalesced waiters just park on its result
+        var readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        return cartViewLoads.load(id, () -> readOnly.execute(status -> {
+            Cart cart = cartRepository.findForViewById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Cart with id " + id + " not found"));
+            // copy the collections so every waiter gets a fully loaded, session-independent view
+            var payments = cart.getPayments() == null ? new ArrayList<Payment>() : new ArrayList<>(cart.getPayments());
+            return new CartResponseDTO(
+                    cart.getId(),
+                    cart.getTotalAmount(),
+                    new HashSet<>(cart.getItems()),
+                    payments,
+                    cart.getUser().getId()
+            );
+        }));
+    }
+
+    @Override
+    public Cart getCartForUpdate(Long id) {
+        return cartRepository.findForUpdateById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart with id " + id + " not found"));
+    }
+
+    @Override
+    public Cart getCartForCheckout(Long id) {
+        return cartRepository.findForCheckoutById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart with id " + id + " not found"));
+    }
+
     @Override
     public void clearCart(Long id) {
         Cart cart = getCart(id);
         cartItemRepository.deleteAllByCartId(id);
         cart.getItems().clear();
         cartRepository.deleteById(id);
+        userRepository.releaseActiveCart(id);
     }
 
     @Override
     public Double getTotalPrice(Long id) {
-        Cart cart = getCart(id);
-        return cart.getTotalAmount();
+        return cartRepository.findTotalAmountCentsById(id)
+                .map(Money::fromCents)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart with id " + id + " not found"));
     }
 
     @Override
@@ -40,4 +89,20 @@ public class CartService implements ICartService{
         Cart cart = new Cart(user);
         return cartRepository.save(cart);
     }
+
+    @Override
+    @Transactional
+    public Long getActiveCartId(User user) {
+        // the principal was loaded for this request, so its pointer is already fresh and costs no query
+        if (user.getActiveCartId() != null) {
+            return user.getActiveCartId();
+        }
+        Cart cart = cartRepository.save(new Cart(user));
+        if (userRepository.claimActiveCart(user.getId(), cart.getId()) == 1) {
+            return cart.getId();
+        }
+        cartRepository.delete(cart);
+        return userRepository.findActiveCartIdById(user.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("User with id " + user.getId() + " not found"));
+    }
 }
@@ -0,0 +1,26 @@
+package com.example.e_commerce_api.service.cart;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+// cart.store.mode=database (default) writes every edit through; write-behind buffers edits in WriteBehindCartStore
+@Configuration
+public class CartStoreConfig {
+
+    @Bean
+    @Primary
+    public ICartItemService cartItemStore(RetryingCartItemService retryingCartItemService,
+                                          ObjectProvider<WriteBehindCartStore> writeBehindCartStore) {
+        WriteBehindCartStore store = writeBehindCartStore.getIfAvailable();
+        return store == null ? retryingCartItemService : new WriteBehindCartItemService(store, retryingCartItemService);
+    }
+
+    @Bean
+    @Primary
+    public ICartService cartStore(CartService cartService, ObjectProvider<WriteBehindCartStore> writeBehindCartStore) {
+        WriteBehindCartStore store = writeBehindCartStore.getIfAvailable();
+        return store == null ? cartService : new WriteBehindCartService(store, cartService);
+    }
+}
@@ -1,11 +1,16 @@
 package com.example.e_commerce_api.service.cart;
 
+import com.example.e_commerce_api.dto.CartItemOperationDTO;
+import com.example.e_commerce_api.dto.CartItemResponseDTO;
 import com.example.e_commerce_api.model.CartItem;
 
+import java.util.List;
+
 public interface ICartItemService {
-    void addItemToCart(Long cartId, Long productId, int quantity);
+    CartItemResponseDTO addItemToCart(Long cartId, Long productId, int quantity);
     void removeItemFromCart(Long cartId, Long productId);
-    void updateItemQuantity(Long cartId, Long productId, int quantity);
+    CartItemResponseDTO updateItemQuantity(Long cartId, Long productId, int quantity);
+    CartItemResponseDTO applyOperations(Long cartId, List<CartItemOperationDTO> operations);
 
     CartItem getCartItem(Long cartId, Long productId);
 }
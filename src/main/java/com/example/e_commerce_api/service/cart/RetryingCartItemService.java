@@ -0,0 +1,126 @@
+package com.example.e_commerce_api.service.cart;
+
+import com.example.e_commerce_api.dto.CartConflictStatsDTO;
+import com.example.e_commerce_api.dto.CartItemOperationDTO;
+import com.example.e_commerce_api.dto.CartItemResponseDTO;
+import com.example.e_commerce_api.model.CartItem;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+@Service
+@RequiredArgsConstructor
+public class RetryingCartItemService implements ICartItemService {
+
+    public static final int MAX_ATTEMPTS = 3;
+
+    private static final long BASE_BACKOFF_MS = 5;
+
+    private static final String CART_PRODUCT_CONSTRAINT = "uk_cart_item_cart_product";
+
+    private final CartItemService cartItemService;
+
+    private final AtomicLong conflicts = new AtomicLong();
+
+    private final AtomicLong recovered = new AtomicLong();
+
+    private final AtomicLong exhausted = new AtomicLong();
+
+    @Override
+    public CartItemResponseDTO addItemToCart(Long cartId, Long productId, int quantity) {
+        return withRetry(() -> cartItemService.addItemToCart(cartId, productId, quantity));
+    }
+
+    @Override
+    public void removeItemFromCart(Long cartId, Long productId) {
+        withRetry(() -> {
+            cartItemService.removeItemFromCart(cartId, productId);
+            return null;
+        });
+    }
+
+    @Override
+    public CartItemResponseDTO updateItemQuantity(Long cartId, Long productId, int quantity) {
+        return withRetry(() -> cartItemService.updateItemQuantity(cartId, productId, quantity));
+    }
+
+    @Override
+    public CartItemResponseDTO applyOperations(Long cartId, List<CartItemOperationDTO> operations) {
+        return withRetry(() -> cartItemService.applyOperations(cartId, operations));
+    }
+
+    @Override
+    public CartItem getCartItem(Long cartId, Long productId) {
+        return cartItemService.getCartItem(cartId, productId);
+    }
+
+    public CartConflictStatsDTO getConflictStats() {
+        return new CartConflictStatsDTO(conflicts.get(), recovered.get(), exhausted.get());
+    }
+
+    private <T> T withRetry(Supplier<T> mutation) {
+        int attempt = 1;
+        while (true) {
+            try {
+                T result = mutation.get();
+                if (attempt > 1) {
+                    recovered.incrementAndGet();
+                }
+                return result;
+            } catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                // a stale cart version, or two requests inserting the same product line, both mean another edit won the race;
+                // any other integrity failure (a missing product, a bad value) would fail the same way again
+                if (e instanceof DataIntegrityViolationException && !isDuplicateLine(e)) {
+                    throw e;
+                }
+                conflicts.incrementAndGet();
+                if (attempt == MAX_ATTEMPTS) {
+                    exhausted.incrementAndGet();
+                    throw e;
+                }
+                backOff(attempt++);
+            }
+        }
+    }
+
+    public static boolean isDuplicateLine(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            // drivers differ in case and some decorate the name, e.g. H2 reports "PUBLIC.UK_..._INDEX_2"
+            if (cause instanceof ConstraintViolationException violation && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(CART_PRODUCT_CONSTRAINT)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // a foreign key pointing at a cart or product that does not exist (Postgres 23503, H2 23506)
+    public static boolean isMissingReference(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException sql && ("23503".equals(sql.getSQLState()) || "23506".equals(sql.getSQLState()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void backOff(int attempt) {
+        // jitter keeps two colliding requests from retrying in lockstep
+        long delay = BASE_BACKOFF_MS * attempt + ThreadLocalRandom.current().nextLong(BASE_BACKOFF_MS * attempt + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a cart update", e);
+        }
+    }
+}
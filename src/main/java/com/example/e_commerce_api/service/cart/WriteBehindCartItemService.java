@@ -0,0 +1,43 @@
+package com.example.e_commerce_api.service.cart;
+
+import com.example.e_commerce_api.dto.CartItemOperationDTO;
+import com.example.e_commerce_api.dto.CartItemResponseDTO;
+import com.example.e_commerce_api.model.CartItem;
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class WriteBehindCartItemService implements ICartItemService {
+
+    private final WriteBehindCartStore cartStore;
+
+    private final ICartItemService database;
+
+    @Override
+    public CartItemResponseDTO addItemToCart(Long cartId, Long productId, int quantity) {
+        return applyOperations(cartId, List.of(new CartItemOperationDTO(CartItemOperationDTO.Type.ADD, productId, quantity)));
+    }
+
+    @Override
+    public void removeItemFromCart(Long cartId, Long productId) {
+        applyOperations(cartId, List.of(new CartItemOperationDTO(CartItemOperationDTO.Type.REMOVE, productId, 0)));
+    }
+
+    @Override
+    public CartItemResponseDTO updateItemQuantity(Long cartId, Long productId, int quantity) {
+        return applyOperations(cartId, List.of(new CartItemOperationDTO(CartItemOperationDTO.Type.SET, productId, quantity)));
+    }
+
+    @Override
+    public CartItemResponseDTO applyOperations(Long cartId, List<CartItemOperationDTO> operations) {
+        return cartStore.tryApply(cartId, operations)
+                .orElseGet(() -> database.applyOperations(cartId, operations));
+    }
+
+    @Override
+    public CartItem getCartItem(Long cartId, Long productId) {
+        return cartStore.findItem(cartId, productId)
+                .orElseGet(() -> database.getCartItem(cartId, productId));
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.e_commerce_api.service.cart;
+
+import com.example.e_commerce_api.dto.CartResponseDTO;
+import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.User;
+import lombok.RequiredArgsConstructor;
+
+@RequiredArgsConstructor
+public class WriteBehindCartService implements ICartService {
+
+    private final WriteBehindCartStore cartStore;
+
+    private final CartService database;
+
+    @Override
+    public Cart getCart(Long id) {
+        cartStore.flush(id);
+        return database.getCart(id);
+    }
+
+    @Override
+    public CartResponseDTO getCartView(Long id) {
+        CartResponseDTO view = database.getCartView(id);
+        // buffered lines are newer than the persisted ones; payments and owner only ever live in the database
+        return cartStore.snapshot(id)
+                .map(buffered -> new CartResponseDTO(view.id(), buffered.totalAmount(), buffered.items(), view.payments(),
+                        view.user(), buffered.rejectedEdits()))
+                .orElseGet(() -> new CartResponseDTO(view.id(), view.totalAmount(), view.items(), view.payments(),
+                        view.user(), cartStore.rejection(id).orElse(null)));
+    }
+
+    @Override
+    public Cart getCartForUpdate(Long id) {
+        // only the database mutation path loads carts this way, and it must not flush from inside its own transaction
+        return database.getCartForUpdate(id);
+    }
+
+    @Override
+    public Cart getCartForCheckout(Long id) {
+        cartStore.flush(id);
+        return database.getCartForCheckout(id);
+    }
+
+    @Override
+    public void clearCart(Long id) {
+        cartStore.discard(id);
+        database.clearCart(id);
+    }
+
+    @Override
+    public Double getTotalPrice(Long id) {
+        return cartStore.snapshot(id)
+                .map(buffered -> buffered.totalAmount())
+                .orElseGet(() -> database.getTotalPrice(id));
+    }
+
+    @Override
+    public Cart createCart(User user) {
+        return database.createCart(user);
+    }
+
+    @Override
+    public Long getActiveCartId(User user) {
+        return database.getActiveCartId(user);
+    }
+}
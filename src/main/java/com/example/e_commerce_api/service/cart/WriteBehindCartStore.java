@@ -0,0 +1,306 @@
+package com.example.e_commerce_api.service.cart;
+
+import com.example.e_commerce_api.dto.CartItemOperationDTO;
+import com.example.e_commerce_api.dto.CartItemResponseDTO;
+import com.example.e_commerce_api.dto.CartStoreStatsDTO;
+import com.example.e_commerce_api.exception.ResourceNotFoundException;
+import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.CartItem;
+import com.example.e_commerce_api.model.Money;
+import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.repository.CartRepository;
+import com.example.e_commerce_api.service.ProductService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+@Component
+@ConditionalOnProperty(name = "cart.store.mode", havingValue = "write-behind")
+@RequiredArgsConstructor
+public class WriteBehindCartStore {
+
+    public static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private final CartRepository cartRepository;
+
+    private final ProductService productService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${cart.store.max-carts:10000}")
+    private int maxCarts;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    private final Map<Long, String> rejections = new ConcurrentHashMap<>();
+
+    private final AtomicLong bufferedEdits = new AtomicLong();
+
+    private final AtomicLong flushes = new AtomicLong();
+
+    private final AtomicLong flushedLines = new AtomicLong();
+
+    private final AtomicLong rejectedFlushes = new AtomicLong();
+
+    private final AtomicLong writeThroughs = new AtomicLong();
+
+    // empty when the store is full, in which case the caller writes the edit straight to the database
+    public Optional<CartItemResponseDTO> tryApply(Long cartId, List<CartItemOperationDTO> operations) {
+        var productIds = operations.stream()
+                .filter(operation -> operation.op() != CartItemOperationDTO.Type.REMOVE)
+                .map(CartItemOperationDTO::productId)
+                .toList();
+        var products = productService.getProductsByIds(productIds);
+        var available = productService.getAvailableQuantities(productIds);
+        while (true) {
+            Entry entry = entries.get(cartId);
+            if (entry == null) {
+                if (entries.size() >= maxCarts) {
+                    writeThroughs.incrementAndGet();
+                    rejections.remove(cartId);
+                    return Optional.empty();
+                }
+                var loaded = new Entry(load(cartId));
+                entry = entries.computeIfAbsent(cartId, id -> loaded);
+            }
+            synchronized (entry) {
+                if (entry.retired) {
+                    // flushed and dropped while we were loading; pick up the fresh entry
+                    continue;
+                }
+                var quantities = CartItemService.plan(entry::quantityOf, operations, products, available);
+                entry.apply(quantities, products);
+                entry.pending.putAll(quantities);
+                bufferedEdits.incrementAndGet();
+                // the client has now seen the cart as it really is, so an earlier rejection is no longer news
+                rejections.remove(cartId);
+                return Optional.of(entry.toResponse(cartId, null));
+            }
+        }
+    }
+
+    public Optional<CartItem> findItem(Long cartId, Long productId) {
+        Entry entry = entries.get(cartId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            if (entry.retired) {
+                return Optional.empty();
+            }
+            Line line = entry.lines.get(productId);
+            if (line == null) {
+                throw new ResourceNotFoundException("Item with id " + productId + " not found in cart");
+            }
+            return Optional.of(line.toItem(productId));
+        }
+    }
+
+    public Optional<CartItemResponseDTO> snapshot(Long cartId) {
+        Entry entry = entries.get(cartId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            if (entry.retired) {
+                return Optional.empty();
+            }
+            return Optional.of(entry.toResponse(cartId, rejections.get(cartId)));
+        }
+    }
+
+    // why the last buffered edits of the cart were dropped, until the client edits the cart again
+    public Optional<String> rejection(Long cartId) {
+        return Optional.ofNullable(rejections.get(cartId));
+    }
+
+    // makes every buffered edit of the cart durable before returning, used before checkout
+    public void flush(Long cartId) {
+        Entry entry = entries.get(cartId);
+        if (entry == null) {
+            return;
+        }
+        for (int attempt = 1; !flush(cartId, entry); attempt++) {
+            if (attempt == MAX_FLUSH_ATTEMPTS) {
+                throw new ConcurrencyFailureException("Could not flush buffered edits of cart " + cartId);
+            }
+        }
+    }
+
+    public void discard(Long cartId) {
+        rejections.remove(cartId);
+        Entry entry = entries.remove(cartId);
+        if (entry != null) {
+            synchronized (entry) {
+                entry.retired = true;
+                entry.pending.clear();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.store.flush-interval-ms:2000}")
+    public void flushAll() {
+        entries.forEach(this::flush);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushAll();
+    }
+
+    public CartStoreStatsDTO getStats() {
+        return new CartStoreStatsDTO(entries.size(), bufferedEdits.get(), flushes.get(), flushedLines.get(),
+                rejectedFlushes.get(), writeThroughs.get());
+    }
+
+    // true once the entry has nothing left to write, false when a conflict put the batch back for another try
+    private boolean flush(Long cartId, Entry entry) {
+        entry.flushLock.lock();
+        try {
+            Map<Long, Integer> batch;
+            synchronized (entry) {
+                if (entry.retired) {
+                    return true;
+                }
+                batch = new LinkedHashMap<>(entry.pending);
+                entry.pending.clear();
+            }
+            if (!batch.isEmpty()) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(cartId, batch));
+                } catch (ConcurrencyFailureException | DataIntegrityViolationException e) {
+                    synchronized (entry) {
+                        // edits buffered during the failed write are newer and win over the batch
+                        batch.forEach(entry.pending::putIfAbsent);
+                    }
+                    return false;
+                } catch (RuntimeException e) {
+                    // the database refused the edits (stock ran out, product or cart gone); its state wins, and the
+                    // client that was already told they were saved hears about it on its next look at the cart
+                    rejectedFlushes.incrementAndGet();
+                    if (rejections.size() < maxCarts) {
+                        rejections.put(cartId, String.valueOf(e.getMessage()));
+                    }
+                    retire(cartId, entry);
+                    return true;
+                }
+                flushes.incrementAndGet();
+                flushedLines.addAndGet(batch.size());
+            }
+            synchronized (entry) {
+                // a clean entry is dropped so the next edit reloads the cart with its persisted ids and version
+                if (entry.pending.isEmpty()) {
+                    retire(cartId, entry);
+                }
+            }
+            return true;
+        } finally {
+            entry.flushLock.unlock();
+        }
+    }
+
+    private void write(Long cartId, Map<Long, Integer> batch) {
+        Cart cart = load(cartId);
+        var operations = batch.entrySet().stream()
+                .map(line -> line.getValue() == 0
+                        ? new CartItemOperationDTO(CartItemOperationDTO.Type.REMOVE, line.getKey(), 0)
+                        : new CartItemOperationDTO(CartItemOperationDTO.Type.SET, line.getKey(), line.getValue()))
+                .toList();
+        var productIds = batch.entrySet().stream()
+                .filter(line -> line.getValue() > 0)
+                .map(Map.Entry::getKey)
+                .toList();
+        var products = productService.getProductsByIds(productIds);
+        CartItemService.applyPlan(cart, CartItemService.plan(cart, operations, products,
+                productService.getAvailableQuantities(productIds)), products);
+    }
+
+    private Cart load(Long cartId) {
+        return cartRepository.findForUpdateById(cartId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart with id " + cartId + " not found"));
+    }
+
+    private void retire(Long cartId, Entry entry) {
+        synchronized (entry) {
+            entry.retired = true;
+            entries.remove(cartId, entry);
+        }
+    }
+
+    // a buffered cart line as plain values; the id is null for a line that has not been written yet
+    private record Line(Long itemId, int quantity, long unitPriceCents) {
+
+        // a fresh detached item for every response, so nothing handed out is ever touched by a later edit
+        private CartItem toItem(Long productId) {
+            var item = new CartItem();
+            item.setId(itemId);
+            item.setProductId(productId);
+            item.setUnitPriceCents(unitPriceCents);
+            item.setQuantity(quantity);
+            return item;
+        }
+    }
+
+    private static final class Entry {
+
+        // product id to line; only ever read or changed while holding the entry's monitor
+        private final Map<Long, Line> lines = new LinkedHashMap<>();
+
+        // final quantity per touched product since the last flush, 0 meaning removed
+        private final Map<Long, Integer> pending = new LinkedHashMap<>();
+
+        private final ReentrantLock flushLock = new ReentrantLock();
+
+        private boolean retired;
+
+        // copies the loaded cart into values, so no entity is shared between the requests using this entry
+        private Entry(Cart cart) {
+            cart.getItems().forEach(item -> lines.put(item.getProductId(),
+                    new Line(item.getId(), item.getQuantity(), item.getUnitPriceCents())));
+        }
+
+        private int quantityOf(Long productId) {
+            Line line = lines.get(productId);
+            return line == null ? 0 : line.quantity();
+        }
+
+        // same effect as CartItemService.applyPlan: touched lines take the product's current price
+        private void apply(Map<Long, Integer> quantities, Map<Long, Product> products) {
+            quantities.forEach((productId, quantity) -> {
+                if (quantity == 0) {
+                    lines.remove(productId);
+                    return;
+                }
+                Line line = lines.get(productId);
+                lines.put(productId, new Line(line == null ? null : line.itemId(), quantity,
+                        Money.toCents(products.get(productId).getPrice())));
+            });
+        }
+
+        private CartItemResponseDTO toResponse(Long cartId, String rejectedEdits) {
+            long totalCents = 0;
+            Set<CartItem> items = new HashSet<>();
+            for (var line : lines.entrySet()) {
+                totalCents += line.getValue().unitPriceCents() * line.getValue().quantity();
+                items.add(line.getValue().toItem(line.getKey()));
+            }
+            return new CartItemResponseDTO(cartId, Money.fromCents(totalCents), items, rejectedEdits);
+        }
+    }
+}
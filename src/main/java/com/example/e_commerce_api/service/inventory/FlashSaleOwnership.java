@@ -0,0 +1,52 @@
+package com.example.e_commerce_api.service.inventory;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+// flash-sale counters live in one JVM, so a single instance may hold them at a time; the others leave the units
+// alone until this lease lapses and one of them takes over
+@Component
+@RequiredArgsConstructor
+public class FlashSaleOwnership {
+
+    private static final String LEASE = "flash-sale";
+
+    private static final String RENEW_SQL = """
+            UPDATE flash_sale_lease SET holder = ?, expires_at = ?
+            WHERE name = ? AND (holder = ? OR expires_at < ?)""";
+    private static final String INSERT_SQL = "INSERT INTO flash_sale_lease (name, holder, expires_at) VALUES (?, ?, ?)";
+    private static final String RELEASE_SQL = "DELETE FROM flash_sale_lease WHERE name = ? AND holder = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // several renewal intervals, so a holder that is merely slow is never taken over
+    @Value("${inventory.flash-sale.lease-ms:30000}")
+    private long leaseMs;
+
+    private final String holder = UUID.randomUUID().toString();
+
+    // takes a free or lapsed lease, or extends the one this instance already holds
+    public boolean tryAcquire() {
+        var now = Instant.now();
+        var expiresAt = Timestamp.from(now.plusMillis(leaseMs));
+        if (jdbcTemplate.update(RENEW_SQL, holder, expiresAt, LEASE, holder, Timestamp.from(now)) > 0) {
+            return true;
+        }
+        try {
+            return jdbcTemplate.update(INSERT_SQL, LEASE, holder, expiresAt) > 0;
+        } catch (DuplicateKeyException e) {
+            return false;
+        }
+    }
+
+    public void release() {
+        jdbcTemplate.update(RELEASE_SQL, LEASE, holder);
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.e_commerce_api.service.inventory;
+
+import com.example.e_commerce_api.dto.FlashSaleStockDTO;
+import com.example.e_commerce_api.exception.ResourceNotFoundException;
+import com.example.e_commerce_api.service.ProductService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+// the counters are per JVM: FlashSaleOwnership lets one instance hold them, and on every other instance flash-sale
+// products fall through to the database path, which refuses them while the flag is set
+@Service
+@RequiredArgsConstructor
+public class FlashSaleStockService {
+
+    public enum Outcome {
+        RESERVED,
+        REJECTED,
+        NOT_MANAGED
+    }
+
+    static final int STRIPES = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    static final int WRITE_BACK_BATCH_SIZE = 5000;
+
+    // reservations only stay in flight for the length of a checkout transaction; longer than this, the admin retries
+    private static final long DISABLE_WAIT_MS = 2000;
+
+    // what is left to sell: the stored quantity minus every ledger row not yet folded into it
+    private static final String AVAILABLE_SQL = """
+            SELECT p.id, p.quantity - COALESCE((SELECT SUM(l.quantity) FROM flash_sale_ledger l WHERE l.product_id = p.id), 0) AS available
+            FROM product p WHERE p.flash_sale = true""";
+    private static final String FLAGGED_SQL = "SELECT id FROM product WHERE flash_sale = true";
+    private static final String LEDGER_SQL = "INSERT INTO flash_sale_ledger (product_id, quantity) VALUES (?, ?)";
+    private static final String PENDING_SQL = "SELECT id, product_id, quantity FROM flash_sale_ledger ORDER BY id LIMIT ?";
+    private static final String PENDING_BY_PRODUCT_SQL = "SELECT product_id, SUM(quantity) AS pending FROM flash_sale_ledger GROUP BY product_id";
+    private static final String DELETE_LEDGER_SQL = "DELETE FROM flash_sale_ledger WHERE id = ?";
+    // no clamping at zero: an oversell has to show up as a negative quantity instead of vanishing
+    private static final String WRITE_BACK_SQL = "UPDATE product SET quantity = quantity - ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final FlashSaleOwnership ownership;
+
+    // ProductService routes admin quantity changes through restock(), so it is looked up lazily
+    private final ObjectProvider<ProductService> productService;
+
+    private final Map<Long, StripedStock> stocks = new ConcurrentHashMap<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void restore() {
+        syncOwnership();
+    }
+
+    // renews the lease and lines the counters up with the flagged products: a lost lease drops them all, products
+    // deleted meanwhile are dropped, and flagged products without counters are loaded, e.g. after taking over
+    @Scheduled(fixedDelayString = "${inventory.flash-sale.lease-renew-ms:10000}")
+    public synchronized void syncOwnership() {
+        Set<Long> flagged = new HashSet<>(jdbcTemplate.queryForList(FLAGGED_SQL, Long.class));
+        if (flagged.isEmpty() && stocks.isEmpty()) {
+            ownership.release();
+            return;
+        }
+        if (!ownership.tryAcquire()) {
+            drop(Set.copyOf(stocks.keySet()));
+            return;
+        }
+        drop(stocks.keySet().stream().filter(id -> !flagged.contains(id)).collect(Collectors.toSet()));
+        Map<Long, Integer> available = new HashMap<>();
+        jdbcTemplate.query(AVAILABLE_SQL, rs -> {
+            available.put(rs.getLong("id"), rs.getInt("available"));
+        });
+        available.forEach((productId, units) -> stocks.computeIfAbsent(productId, id -> new StripedStock(STRIPES, units)));
+    }
+
+    // the ledger row joins the caller's transaction, so a reservation is durable exactly when the order is
+    public Outcome tryReserve(Long productId, int quantity) {
+        var stock = stocks.get(productId);
+        if (stock == null || !stock.enter()) {
+            return Outcome.NOT_MANAGED;
+        }
+        if (!stock.tryTake(quantity)) {
+            stock.exit();
+            return Outcome.REJECTED;
+        }
+        try {
+            jdbcTemplate.update(LEDGER_SQL, productId, quantity);
+        } catch (RuntimeException e) {
+            stock.give(quantity);
+            stock.exit();
+            throw e;
+        }
+        onCompletion(stock, committed -> {
+            if (!committed) {
+                stock.give(quantity);
+            }
+        });
+        return Outcome.RESERVED;
+    }
+
+    public boolean release(Long productId, int quantity) {
+        var stock = stocks.get(productId);
+        if (stock == null || !stock.enter()) {
+            return false;
+        }
+        try {
+            jdbcTemplate.update(LEDGER_SQL, productId, -quantity);
+        } catch (RuntimeException e) {
+            stock.exit();
+            throw e;
+        }
+        // the units become sellable again only once the row handing them back is durable
+        onCompletion(stock, committed -> {
+            if (committed) {
+                stock.give(quantity);
+            }
+        });
+        return true;
+    }
+
+    // product.quantity was changed directly (admin edit, import); the counters follow once that change commits
+    public void restock(Long productId, int delta) {
+        var stock = stocks.get(productId);
+        if (stock == null || delta == 0) {
+            return;
+        }
+        Runnable apply = () -> {
+            if (delta > 0) {
+                stock.give(delta);
+            } else {
+                stock.takeUpTo(-delta);
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply.run();
+            }
+        });
+    }
+
+    public synchronized FlashSaleStockDTO enable(Long productId) {
+        if (!ownership.tryAcquire()) {
+            throw new IllegalStateException("Flash-sale stock is held by another instance");
+        }
+        // the flag update waits for database-path reservations holding the row, and later ones fail on the flag
+        if (jdbcTemplate.update("UPDATE product SET flash_sale = true WHERE id = ?", productId) == 0) {
+            throw new ResourceNotFoundException("Product with id " + productId + " not found");
+        }
+        var stock = stocks.computeIfAbsent(productId, id -> new StripedStock(STRIPES,
+                jdbcTemplate.queryForObject(AVAILABLE_SQL + " AND p.id = ?", (rs, rowNum) -> rs.getInt("available"), id)));
+        productService.getObject().evictFromCache(List.of(productId));
+        return new FlashSaleStockDTO(productId, stock.available(), pendingByProduct().getOrDefault(productId, 0L));
+    }
+
+    public synchronized void disable(Long productId) {
+        var stock = stocks.get(productId);
+        if (stock == null && !ownership.tryAcquire()) {
+            // the holder's counters would keep selling units the database path is about to sell as well
+            throw new IllegalStateException("Flash-sale stock is held by another instance");
+        }
+        if (stock != null) {
+            // while the flag is still set, new checkouts fall through to the database and fail there, so nothing
+            // can sell units the ledger has not folded in yet
+            stock.close();
+            if (!stock.awaitIdle(DISABLE_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                stock.reopen();
+                throw new IllegalStateException("Flash-sale reservations are still in flight; retry shortly");
+            }
+            stocks.remove(productId);
+        }
+        writeBack();
+        jdbcTemplate.update("UPDATE product SET flash_sale = false WHERE id = ?", productId);
+        productService.getObject().evictFromCache(List.of(productId));
+    }
+
+    // the product is gone, so its counters must stop selling; unfolded ledger rows are simply deleted by writeBack
+    public void forget(Long productId) {
+        drop(Set.of(productId));
+    }
+
+    public List<FlashSaleStockDTO> getStocks() {
+        var pending = pendingByProduct();
+        return stocks.entrySet().stream()
+                .map(entry -> new FlashSaleStockDTO(entry.getKey(), entry.getValue().available(),
+                        pending.getOrDefault(entry.getKey(), 0L)))
+                .sorted(Comparator.comparing(FlashSaleStockDTO::productId))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.flash-sale.flush-interval-ms:500}")
+    public synchronized void writeBack() {
+        List<Long> touched = new ArrayList<>();
+        Folded batch;
+        do {
+            try {
+                batch = transactionTemplate.execute(status -> foldLedgerBatch());
+            } catch (DataAccessException e) {
+                // the batch rolled back as a whole; its ledger rows are still there for the next cycle
+                break;
+            }
+            touched.addAll(batch.products());
+        } while (batch.rows() == WRITE_BACK_BATCH_SIZE);
+        if (!touched.isEmpty()) {
+            productService.getObject().evictFromCache(touched.stream().distinct().toList());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writeBack();
+        ownership.release();
+    }
+
+    private void drop(Set<Long> productIds) {
+        for (Long productId : productIds) {
+            var stock = stocks.remove(productId);
+            if (stock != null) {
+                stock.close();
+            }
+        }
+    }
+
+    private Folded foldLedgerBatch() {
+        List<long[]> rows = jdbcTemplate.query(PENDING_SQL,
+                (rs, rowNum) -> new long[]{rs.getLong("id"), rs.getLong("product_id"), rs.getLong("quantity")},
+                WRITE_BACK_BATCH_SIZE);
+        if (rows.isEmpty()) {
+            return new Folded(0, List.of());
+        }
+        // delete first and fold only the rows this transaction removed, so two instances never subtract a row twice
+        int[] deleted = jdbcTemplate.batchUpdate(DELETE_LEDGER_SQL, rows.stream().map(row -> new Object[]{row[0]}).toList());
+        Map<Long, Long> byProduct = new TreeMap<>();
+        for (int i = 0; i < rows.size(); i++) {
+            if (deleted[i] != 0) {
+                byProduct.merge(rows.get(i)[1], rows.get(i)[2], Long::sum);
+            }
+        }
+        jdbcTemplate.batchUpdate(WRITE_BACK_SQL, byProduct.entrySet().stream()
+                .map(entry -> new Object[]{entry.getValue(), entry.getKey()})
+                .toList());
+        return new Folded(rows.size(), List.copyOf(byProduct.keySet()));
+    }
+
+    private Map<Long, Long> pendingByProduct() {
+        Map<Long, Long> pending = new HashMap<>();
+        jdbcTemplate.query(PENDING_BY_PRODUCT_SQL, rs -> {
+            pending.put(rs.getLong("product_id"), rs.getLong("pending"));
+        });
+        return pending;
+    }
+
+    private record Folded(int rows, List<Long> products) {
+    }
+
+    private static void onCompletion(StripedStock stock, Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            try {
+                action.accept(true);
+            } finally {
+                stock.exit();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    action.accept(status == STATUS_COMMITTED);
+                } finally {
+                    stock.exit();
+                }
+            }
+        });
+    }
+}
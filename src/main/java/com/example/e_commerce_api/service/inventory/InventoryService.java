@@ -0,0 +1,138 @@
+package com.example.e_commerce_api.service.inventory;
+
+import com.example.e_commerce_api.exception.InsufficientStockException;
+import com.example.e_commerce_api.service.ProductService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+public class InventoryService {
+
+    // flash-sale rows are sold from the counters; between disable() closing them and the ledger being folded in,
+    // the flag makes a checkout fail here rather than sell units that are already spoken for
+    private static final String RESERVE_SQL = "UPDATE product SET quantity = quantity - ? WHERE id = ? AND quantity >= ? AND flash_sale = false";
+    private static final String RELEASE_SQL = "UPDATE product SET quantity = quantity + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ProductService productService;
+
+    private final FlashSaleStockService flashSaleStockService;
+
+    @Transactional
+    public void reserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        requirePositive(quantities);
+        Map<Long, Integer> fromCounters = new HashMap<>();
+        Map<Long, Integer> fromDatabase = new TreeMap<>();
+        List<Long> shortProducts = new ArrayList<>();
+        for (var line : new TreeMap<>(quantities).entrySet()) {
+            switch (flashSaleStockService.tryReserve(line.getKey(), line.getValue())) {
+                case RESERVED -> fromCounters.put(line.getKey(), line.getValue());
+                case REJECTED -> shortProducts.add(line.getKey());
+                case NOT_MANAGED -> fromDatabase.put(line.getKey(), line.getValue());
+            }
+        }
+        if (!shortProducts.isEmpty()) {
+            releaseCounters(fromCounters);
+            throw new InsufficientStockException(shortProducts);
+        }
+        try {
+            reserveInDatabase(fromDatabase);
+        } catch (RuntimeException e) {
+            releaseCounters(fromCounters);
+            throw e;
+        }
+    }
+
+    @Transactional
+    public void release(Map<Long, Integer> quantities) {
+        requirePositive(quantities);
+        Map<Long, Integer> toDatabase = new TreeMap<>();
+        quantities.forEach((productId, quantity) -> {
+            if (!flashSaleStockService.release(productId, quantity)) {
+                toDatabase.put(productId, quantity);
+            }
+        });
+        releaseInDatabase(toDatabase);
+    }
+
+    // a negative line would pass "quantity >= ?" and add stock instead of taking it
+    private static void requirePositive(Map<Long, Integer> quantities) {
+        quantities.forEach((productId, quantity) -> {
+            if (quantity == null || quantity <= 0) {
+                throw new IllegalArgumentException("Quantity for product with id " + productId + " must be positive");
+            }
+        });
+    }
+
+    // inside a transaction the rollback drops the ledger rows and hands the units back by itself
+    private void releaseCounters(Map<Long, Integer> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            quantities.forEach(flashSaleStockService::release);
+        }
+    }
+
+    private void reserveInDatabase(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        // a fixed row order means concurrent checkouts lock shared products in the same sequence and cannot deadlock
+        var lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        int[] counts = jdbcTemplate.batchUpdate(RESERVE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+            ps.setInt(3, line.getValue());
+        })[0];
+
+        List<Long> shortProducts = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                shortProducts.add(lines.get(i).getKey());
+            }
+        }
+        if (!shortProducts.isEmpty()) {
+            // the exception rolls back the lines that were already decremented
+            throw new InsufficientStockException(shortProducts);
+        }
+        evictAfterCommit(lines.stream().map(Map.Entry::getKey).toList());
+    }
+
+    private void releaseInDatabase(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return;
+        }
+        var lines = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        jdbcTemplate.batchUpdate(RELEASE_SQL, lines, lines.size(), (ps, line) -> {
+            ps.setInt(1, line.getValue());
+            ps.setLong(2, line.getKey());
+        });
+        evictAfterCommit(lines.stream().map(Map.Entry::getKey).toList());
+    }
+
+    private void evictAfterCommit(List<Long> productIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            productService.evictFromCache(productIds);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                productService.evictFromCache(productIds);
+            }
+        });
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.e_commerce_api.service.inventory;
+
+import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.Payment;
+import com.example.e_commerce_api.model.StockReservation;
+import com.example.e_commerce_api.repository.PaymentRepository;
+import com.example.e_commerce_api.repository.StockReservationRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+@Service
+@RequiredArgsConstructor
+public class StockReservationService {
+
+    public static final int SWEEP_BATCH_SIZE = 500;
+
+    // the checkout session closes this long before its reservation expires, so late confirmations still find their stock
+    public static final Duration CHECKOUT_GRACE = Duration.ofMinutes(5);
+
+    // an open checkout session may have been paid without its webhook arriving yet, so only the gateway can close it
+    // (PaymentReconciliationJob.settleExpired); the sweep takes sessionless and already settled payments
+    private static final String EXPIRED_SQL = """
+            SELECT r.id, r.payment_id, r.product_id, r.quantity FROM stock_reservation r
+            JOIN payment p ON p.id = r.payment_id
+            WHERE r.expires_at <= ? AND (p.session_id IS NULL OR p.status NOT IN ('PENDING', 'CREATED'))
+            ORDER BY r.expires_at, r.payment_id LIMIT ?""";
+    private static final String BY_PAYMENT_SQL = "SELECT id, payment_id, product_id, quantity FROM stock_reservation WHERE payment_id = ?";
+    private static final String BY_SESSIONS_SQL = """
+            SELECT r.id, r.payment_id, r.product_id, r.quantity FROM stock_reservation r
+            JOIN payment p ON p.id = r.payment_id WHERE p.session_id IN (%s)""";
+    private static final String DELETE_PAID_SQL = """
+            DELETE FROM stock_reservation WHERE payment_id IN (
+                SELECT id FROM payment WHERE session_id IN (%s) AND status = 'PAID')""";
+    private static final String DELETE_SQL = "DELETE FROM stock_reservation WHERE id = ?";
+    private static final String CLOSE_PAYMENT_SQL = "UPDATE payment SET status = ? WHERE id = ? AND status IN ('PENDING', 'CREATED', ?)";
+
+    private final InventoryService inventoryService;
+
+    private final PaymentRepository paymentRepository;
+
+    private final StockReservationRepository stockReservationRepository;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${inventory.reservation.ttl-minutes:40}")
+    private long ttlMinutes;
+
+    @Transactional
+    public Payment reserve(Cart cart, Map<Long, Integer> quantities, Long amount) {
+        inventoryService.reserve(quantities);
+        var expiresAt = Instant.now().plus(Duration.ofMinutes(ttlMinutes));
+        Payment payment = paymentRepository.save(Payment.builder()
+                .cart(cart)
+                .amount(amount)
+                .status("PENDING")
+                .expiresAt(expiresAt)
+                .build());
+        stockReservationRepository.saveAll(quantities.entrySet().stream()
+                .map(line -> StockReservation.builder()
+                        .payment(payment)
+                        .productId(line.getKey())
+                        .quantity(line.getValue())
+                        .expiresAt(expiresAt)
+                        .build())
+                .toList());
+        return payment;
+    }
+
+    @Transactional
+    public void cancel(Long paymentId) {
+        close(jdbcTemplate.query(BY_PAYMENT_SQL, this::mapRow, paymentId), "FAILED");
+    }
+
+    // closes the payments behind these checkout sessions and gives their stock back
+    @Transactional
+    public void closeSessions(List<String> sessionIds, String status) {
+        if (!sessionIds.isEmpty()) {
+            close(jdbcTemplate.query(BY_SESSIONS_SQL.formatted(placeholders(sessionIds.size())), this::mapRow,
+                    sessionIds.toArray()), status);
+        }
+    }
+
+    // the stock of a paid payment is sold, so its reservations are dropped without releasing anything
+    @Transactional
+    public int confirmSessions(List<String> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(DELETE_PAID_SQL.formatted(placeholders(sessionIds.size())), sessionIds.toArray());
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:60000}")
+    public int releaseExpired() {
+        var now = Timestamp.from(Instant.now());
+        int released = 0;
+        int swept;
+        do {
+            // each chunk commits on its own so a large backlog never holds locks for the whole sweep
+            swept = transactionTemplate.execute(status -> close(
+                    jdbcTemplate.query(EXPIRED_SQL, this::mapRow, now, SWEEP_BATCH_SIZE), "EXPIRED"));
+            released += swept;
+        } while (swept == SWEEP_BATCH_SIZE);
+        return released;
+    }
+
+    private int close(List<Reservation> reservations, String status) {
+        if (reservations.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(DELETE_SQL, reservations, reservations.size(),
+                (ps, reservation) -> ps.setLong(1, reservation.id()));
+
+        // only rows this call deleted are released, so overlapping sweeps never return the same stock twice
+        List<Long> paymentIds = new ArrayList<>(new LinkedHashSet<>(reservations.stream().map(Reservation::paymentId).toList()));
+        int[][] closed = jdbcTemplate.batchUpdate(CLOSE_PAYMENT_SQL, paymentIds, paymentIds.size(), (ps, paymentId) -> {
+            ps.setString(1, status);
+            ps.setLong(2, paymentId);
+            ps.setString(3, status);
+        });
+        // a payment confirmed in the meantime keeps its stock; only still-open ones give it back
+        Set<Long> releasable = new HashSet<>();
+        for (int i = 0; i < paymentIds.size(); i++) {
+            if (closed[0][i] > 0) {
+                releasable.add(paymentIds.get(i));
+            }
+        }
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (int i = 0; i < reservations.size(); i++) {
+            var reservation = reservations.get(i);
+            if (counts[0][i] > 0 && releasable.contains(reservation.paymentId())) {
+                quantities.merge(reservation.productId(), reservation.quantity(), Integer::sum);
+            }
+        }
+        inventoryService.release(quantities);
+        return reservations.size();
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    private Reservation mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new Reservation(rs.getLong("id"), rs.getLong("payment_id"), rs.getLong("product_id"),
+                rs.getInt("quantity"));
+    }
+
+    private record Reservation(long id, long paymentId, long productId, int quantity) {
+    }
+}
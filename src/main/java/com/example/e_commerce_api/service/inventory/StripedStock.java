@@ -0,0 +1,136 @@
+package com.example.e_commerce_api.service.inventory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+class StripedStock {
+
+    private final AtomicIntegerArray stripes;
+
+    // reservations and releases between enter() and the end of their transaction
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    StripedStock(int stripeCount, int available) {
+        this.stripes = new AtomicIntegerArray(stripeCount);
+        int share = Math.max(available, 0) / stripeCount;
+        int remainder = Math.max(available, 0) % stripeCount;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes.set(i, share + (i < remainder ? 1 : 0));
+        }
+    }
+
+    boolean tryTake(int quantity) {
+        int count = stripes.length();
+        int start = ThreadLocalRandom.current().nextInt(count);
+        // fast path: a single stripe usually covers the whole line, so threads rarely touch the same slot
+        for (int i = 0; i < count; i++) {
+            if (takeFromStripe((start + i) % count, quantity)) {
+                return true;
+            }
+        }
+        // slow path: gather the remainder across stripes, undoing everything if the total is short
+        int[] taken = new int[count];
+        int missing = quantity;
+        for (int i = 0; i < count && missing > 0; i++) {
+            int slot = (start + i) % count;
+            int current;
+            int grabbed;
+            do {
+                current = stripes.get(slot);
+                grabbed = Math.min(current, missing);
+            } while (grabbed > 0 && !stripes.compareAndSet(slot, current, current - grabbed));
+            taken[slot] = grabbed;
+            missing -= grabbed;
+        }
+        if (missing > 0) {
+            for (int slot = 0; slot < count; slot++) {
+                if (taken[slot] > 0) {
+                    stripes.addAndGet(slot, taken[slot]);
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    void give(int quantity) {
+        stripes.addAndGet(ThreadLocalRandom.current().nextInt(stripes.length()), quantity);
+    }
+
+    // takes whatever is left up to quantity; a restock that lowers stock below what is already sold leaves zero
+    void takeUpTo(int quantity) {
+        int missing = quantity;
+        for (int slot = 0; slot < stripes.length() && missing > 0; slot++) {
+            int current;
+            int grabbed;
+            do {
+                current = stripes.get(slot);
+                grabbed = Math.min(current, missing);
+            } while (grabbed > 0 && !stripes.compareAndSet(slot, current, current - grabbed));
+            missing -= grabbed;
+        }
+    }
+
+    int available() {
+        int total = 0;
+        for (int i = 0; i < stripes.length(); i++) {
+            total += stripes.get(i);
+        }
+        return total;
+    }
+
+    boolean enter() {
+        inFlight.incrementAndGet();
+        // close() happens before the in-flight check in awaitIdle, so a caller seeing closed == false is always waited for
+        if (closed) {
+            exit();
+            return false;
+        }
+        return true;
+    }
+
+    void exit() {
+        inFlight.decrementAndGet();
+    }
+
+    void close() {
+        closed = true;
+    }
+
+    // undoes close() when the caller gave up waiting for in-flight work
+    void reopen() {
+        closed = false;
+    }
+
+    boolean awaitIdle(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (inFlight.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean takeFromStripe(int slot, int quantity) {
+        while (true) {
+            int current = stripes.get(slot);
+            if (current < quantity) {
+                return false;
+            }
+            if (stripes.compareAndSet(slot, current, current - quantity)) {
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.infra.cache.LocalCache;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@RequiredArgsConstructor
+public class CheckoutIdempotencyStore {
+
+    public static final int SWEEP_BATCH_SIZE = 1000;
+
+    private static final int CACHE_MAX_SIZE = 10_000;
+
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+
+    private static final String FIND_SQL = "SELECT cart_id, session_id, checkout_url FROM idempotency_key WHERE idempotency_key = ? AND expires_at > ?";
+    private static final String CLAIM_SQL = "INSERT INTO idempotency_key (idempotency_key, cart_id, expires_at) VALUES (?, ?, ?)";
+    private static final String TAKE_OVER_SQL = """
+            UPDATE idempotency_key SET cart_id = ?, session_id = NULL, checkout_url = NULL, expires_at = ?
+            WHERE idempotency_key = ? AND expires_at <= ?""";
+    // only the open claim this cart holds can be completed, so a request whose claim was taken over cannot overwrite it
+    private static final String COMPLETE_SQL = """
+            UPDATE idempotency_key SET session_id = ?, checkout_url = ?, expires_at = ?
+            WHERE idempotency_key = ? AND cart_id = ? AND session_id IS NULL""";
+    private static final String RELEASE_SQL = "DELETE FROM idempotency_key WHERE idempotency_key = ? AND session_id IS NULL";
+    private static final String SWEEP_SQL = """
+            DELETE FROM idempotency_key WHERE idempotency_key IN (
+                SELECT idempotency_key FROM idempotency_key WHERE expires_at <= ? LIMIT ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // completed keys only; a retry is answered from here without a query
+    private final LocalCache<String, Entry> completed = new LocalCache<>(CACHE_MAX_SIZE, CACHE_TTL);
+
+    @Value("${payment.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    // a claim not completed in this time belongs to a request that died, and may be taken over
+    @Value("${payment.idempotency.claim-timeout-ms:60000}")
+    private long claimTimeoutMs;
+
+    public Optional<CheckoutSession> find(String key, Long cartId) {
+        Entry entry = completed.get(key);
+        if (entry == null) {
+            List<Entry> rows = jdbcTemplate.query(FIND_SQL, (rs, rowNum) -> new Entry(rs.getLong("cart_id"),
+                    rs.getString("session_id") == null ? null : new CheckoutSession(rs.getString("session_id"), rs.getString("checkout_url"))),
+                    key, Timestamp.from(Instant.now()));
+            if (rows.isEmpty()) {
+                return Optional.empty();
+            }
+            entry = rows.get(0);
+            if (entry.session() != null) {
+                completed.put(key, entry);
+            }
+        }
+        if (!entry.cartId().equals(cartId)) {
+            throw new IllegalArgumentException("Idempotency-Key was already used for another cart");
+        }
+        return Optional.ofNullable(entry.session());
+    }
+
+    public boolean claim(String key, Long cartId) {
+        var now = Instant.now();
+        var claimExpiresAt = Timestamp.from(now.plusMillis(claimTimeoutMs));
+        try {
+            jdbcTemplate.update(CLAIM_SQL, key, cartId, claimExpiresAt);
+            return true;
+        } catch (DuplicateKeyException e) {
+            // the primary key is the lock: only an expired row or an abandoned claim can be taken over
+            return jdbcTemplate.update(TAKE_OVER_SQL, cartId, claimExpiresAt, key, Timestamp.from(now)) == 1;
+        }
+    }
+
+    public boolean complete(String key, Long cartId, CheckoutSession session) {
+        if (jdbcTemplate.update(COMPLETE_SQL, session.id(), session.url(),
+                Timestamp.from(Instant.now().plus(Duration.ofHours(ttlHours))), key, cartId) != 1) {
+            return false;
+        }
+        completed.put(key, new Entry(cartId, session));
+        return true;
+    }
+
+    public void release(String key) {
+        jdbcTemplate.update(RELEASE_SQL, key);
+    }
+
+    @Scheduled(fixedDelayString = "${payment.idempotency.sweep-interval-ms:600000}")
+    public int deleteExpired() {
+        var now = Timestamp.from(Instant.now());
+        int deleted = 0;
+        int swept;
+        do {
+            swept = jdbcTemplate.update(SWEEP_SQL, now, SWEEP_BATCH_SIZE);
+            deleted += swept;
+        } while (swept == SWEEP_BATCH_SIZE);
+        return deleted;
+    }
+
+    private record Entry(Long cartId, CheckoutSession session) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.e_commerce_api.service.payment;
+
+import java.time.Instant;
+import java.util.List;
+
+public record CheckoutRequest(
+        Long cartId,
+        Long paymentId,
+        List<LineItem> lineItems,
+        Instant expiresAt
+) {
+    public record LineItem(
+            String name,
+            long unitAmountCents,
+            long quantity
+    ) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.exception.PaymentGatewayUnavailableException;
+import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.CartItem;
+import com.example.e_commerce_api.model.Payment;
+import com.example.e_commerce_api.service.PaymentService;
+import com.example.e_commerce_api.service.cart.ICartService;
+import com.example.e_commerce_api.service.inventory.StockReservationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class CheckoutService {
+
+    private final ICartService cartService;
+
+    private final StockReservationService stockReservationService;
+
+    private final PaymentService paymentService;
+
+    private final PaymentGateway paymentGateway;
+
+    private final CheckoutIdempotencyStore idempotencyStore;
+
+    // duplicates arriving while the first request is still running share its result
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${payment.gateway.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${payment.checkout.threads:32}")
+    private int threads;
+
+    @Value("${payment.checkout.queue-capacity:256}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void start() {
+        var threadIds = new AtomicInteger();
+        // bounded on both sides: a slow gateway fills the queue and further checkouts are refused instead of piling up
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    var thread = new Thread(runnable, "checkout-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    public CompletableFuture<CheckoutSession> checkout(Long cartId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return checkout(cartId);
+        }
+        var running = inFlight.get(idempotencyKey);
+        if (running != null) {
+            // same rule as the store: a key belongs to the cart it was first used for
+            if (!running.cartId().equals(cartId)) {
+                throw new IllegalArgumentException("Idempotency-Key was already used for another cart");
+            }
+            return running.result();
+        }
+        var replay = idempotencyStore.find(idempotencyKey, cartId);
+        if (replay.isPresent()) {
+            return CompletableFuture.completedFuture(replay.get());
+        }
+        if (!idempotencyStore.claim(idempotencyKey, cartId)) {
+            // another instance holds the key; it may have finished since we looked
+            return idempotencyStore.find(idempotencyKey, cartId)
+                    .map(CompletableFuture::completedFuture)
+                    .orElseThrow(() -> new IllegalStateException("A checkout with this Idempotency-Key is still in progress"));
+        }
+        var recorded = new InFlight(cartId, new CompletableFuture<>());
+        inFlight.put(idempotencyKey, recorded);
+        CompletableFuture<CheckoutSession> result;
+        try {
+            result = checkout(cartId);
+        } catch (RuntimeException e) {
+            inFlight.remove(idempotencyKey, recorded);
+            idempotencyStore.release(idempotencyKey);
+            throw e;
+        }
+        result.whenComplete((session, failure) -> {
+            try {
+                // a failed attempt frees the key so the client's retry really retries
+                if (failure == null) {
+                    idempotencyStore.complete(idempotencyKey, cartId, session);
+                } else {
+                    idempotencyStore.release(idempotencyKey);
+                }
+            } finally {
+                inFlight.remove(idempotencyKey, recorded);
+                if (failure == null) {
+                    recorded.result().complete(session);
+                } else {
+                    recorded.result().completeExceptionally(failure);
+                }
+            }
+        });
+        return recorded.result();
+    }
+
+    public CompletableFuture<CheckoutSession> checkout(Long cartId) {
+        if (!paymentGateway.isAvailable()) {
+            // no stock is reserved for a checkout that cannot reach the gateway anyway
+            throw new PaymentGatewayUnavailableException("Payment gateway is unavailable");
+        }
+        // stock and the PENDING payment are committed in a short transaction before any remote call
+        Cart cart = cartService.getCartForCheckout(cartId);
+        Map<Long, Integer> quantities = cart.getItems().stream()
+                .collect(Collectors.toMap(CartItem::getProductId, CartItem::getQuantity, Integer::sum));
+        Payment payment = stockReservationService.reserve(cart, quantities, cart.getTotalAmountCents());
+        var request = new CheckoutRequest(
+                cartId,
+                payment.getId(),
+                cart.getItems().stream()
+                        .map(item -> new CheckoutRequest.LineItem(item.getProduct().getName(), item.getUnitPriceCents(), item.getQuantity()))
+                        .toList(),
+                payment.getExpiresAt().minus(StockReservationService.CHECKOUT_GRACE));
+
+        CompletableFuture<CheckoutSession> session;
+        try {
+            session = CompletableFuture.supplyAsync(() -> paymentGateway.createCheckoutSession(request), executor);
+        } catch (RejectedExecutionException e) {
+            stockReservationService.cancel(payment.getId());
+            throw e;
+        }
+        // the gateway call holds no transaction or connection; a timed-out session is simply never attached
+        return session
+                .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+                .thenApplyAsync(created -> {
+                    if (!paymentService.attachSession(payment, created.id(), created.url())) {
+                        // the stock behind this session is gone, so nobody may pay through it
+                        expireQuietly(created.id());
+                        throw new IllegalStateException("Checkout reservation expired before the payment session was ready");
+                    }
+                    return created;
+                }, executor)
+                .whenCompleteAsync((created, failure) -> {
+                    // if this cannot run either, the reservation sweeper returns the stock when it expires
+                    if (failure != null) {
+                        stockReservationService.cancel(payment.getId());
+                    }
+                }, executor);
+    }
+
+    private record InFlight(Long cartId, CompletableFuture<CheckoutSession> result) {
+    }
+
+    private void expireQuietly(String sessionId) {
+        try {
+            paymentGateway.expireCheckoutSession(sessionId);
+        } catch (RuntimeException e) {
+            // the session was created to expire before the reservation, so it closes on its own shortly
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.e_commerce_api.service.payment;
+
+public record CheckoutSession(
+        String id,
+        String url
+) {
+}
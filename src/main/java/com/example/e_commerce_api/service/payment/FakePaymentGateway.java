@@ -0,0 +1,93 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.exception.PaymentGatewayException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+// in-process stand-in so tests and load runs never reach Stripe
+@Component
+@Qualifier("remotePaymentGateway")
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "fake")
+public class FakePaymentGateway implements PaymentGateway {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // webhooks are {"sessionId": "...", "status": "PAID"} signed with this shared value
+    @Value("${payment.gateway.fake.webhook-signature:fake-signature}")
+    private String webhookSignature;
+
+    // injected degradation, to exercise the resilience around the gateway without a real outage
+    @Value("${payment.gateway.fake.latency-ms:0}")
+    private volatile long latencyMs;
+
+    @Value("${payment.gateway.fake.failure-rate:0.0}")
+    private volatile double failureRate;
+
+    // what every session reports to reconciliation; empty means still open
+    @Value("${payment.gateway.fake.session-status:}")
+    private volatile String sessionStatus;
+
+    public void setLatencyMs(long latencyMs) {
+        this.latencyMs = latencyMs;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public void setSessionStatus(String sessionStatus) {
+        this.sessionStatus = sessionStatus;
+    }
+
+    @Override
+    public CheckoutSession createCheckoutSession(CheckoutRequest request) {
+        degrade();
+        String sessionId = "cs_fake_" + request.paymentId();
+        return new CheckoutSession(sessionId, "https://checkout.fake.local/" + sessionId);
+    }
+
+    @Override
+    public void expireCheckoutSession(String sessionId) {
+        degrade();
+    }
+
+    @Override
+    public Optional<String> getSessionStatus(String sessionId) {
+        degrade();
+        return Optional.ofNullable(sessionStatus == null || sessionStatus.isEmpty() ? null : sessionStatus);
+    }
+
+    @Override
+    public Optional<PaymentEvent> parseWebhook(String payload, String signature) {
+        if (!webhookSignature.equals(signature)) {
+            throw new PaymentGatewayException("Invalid webhook signature");
+        }
+        try {
+            var event = objectMapper.readValue(payload, PaymentEvent.class);
+            return Optional.ofNullable(event.sessionId() == null || event.status() == null ? null : event);
+        } catch (JsonProcessingException e) {
+            throw new PaymentGatewayException("Unreadable webhook payload", e);
+        }
+    }
+
+    private void degrade() {
+        if (latencyMs > 0) {
+            try {
+                Thread.sleep(latencyMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new PaymentGatewayException("Interrupted while calling the fake gateway", e);
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new PaymentGatewayException("Injected payment gateway failure", true);
+        }
+    }
+}
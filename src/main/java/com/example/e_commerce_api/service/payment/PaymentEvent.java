@@ -0,0 +1,7 @@
+package com.example.e_commerce_api.service.payment;
+
+public record PaymentEvent(
+        String sessionId,
+        String status
+) {
+}
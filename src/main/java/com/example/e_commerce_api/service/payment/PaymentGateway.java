@@ -0,0 +1,22 @@
+package com.example.e_commerce_api.service.payment;
+
+import java.util.Optional;
+
+// payment.gateway selects the implementation: stripe (default) or fake for tests and load runs
+public interface PaymentGateway {
+    CheckoutSession createCheckoutSession(CheckoutRequest request);
+
+    // lets callers fail fast before doing any work for a gateway that is known to be down
+    default boolean isAvailable() {
+        return true;
+    }
+
+    // closes a session nobody should pay any more, e.g. one whose reservation expired before it was attached
+    void expireCheckoutSession(String sessionId);
+
+    // the session's settled status (PAID, EXPIRED), empty while the customer can still pay
+    Optional<String> getSessionStatus(String sessionId);
+
+    // verifies the signature and maps the event; empty for event types that do not move a payment
+    Optional<PaymentEvent> parseWebhook(String payload, String signature);
+}
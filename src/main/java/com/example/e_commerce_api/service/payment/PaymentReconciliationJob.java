@@ -0,0 +1,160 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.dto.PaymentReconciliationStatsDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+// settles payments whose webhook never arrived by asking the gateway about their sessions
+@Component
+@RequiredArgsConstructor
+public class PaymentReconciliationJob {
+
+    public static final int CHUNK_SIZE = 200;
+
+    // keyset paging on (status, id): every chunk is an index range scan, however far the walk has got
+    private static final String PAGE_SQL = """
+            SELECT id, session_id FROM payment
+            WHERE status IN ('PENDING', 'CREATED') AND session_id IS NOT NULL AND id > ?
+            ORDER BY id LIMIT ?""";
+    private static final String EXPIRED_PAGE_SQL = """
+            SELECT id, session_id FROM payment
+            WHERE status IN ('PENDING', 'CREATED') AND session_id IS NOT NULL AND expires_at <= ? AND id > ?
+            ORDER BY id LIMIT ?""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final PaymentGateway paymentGateway;
+
+    private final PaymentStatusUpdater paymentStatusUpdater;
+
+    // kept below payment.gateway.max-concurrent so checkouts still find room in the gateway bulkhead
+    @Value("${payment.reconciliation.concurrency:8}")
+    private int concurrency;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong runs = new AtomicLong();
+
+    private final AtomicLong checked = new AtomicLong();
+
+    private final AtomicLong settled = new AtomicLong();
+
+    private final AtomicLong lookupFailures = new AtomicLong();
+
+    private final AtomicLong failedChunks = new AtomicLong();
+
+    private volatile long lastRunMillis;
+
+    @PostConstruct
+    public void start() {
+        var threadIds = new AtomicInteger();
+        // a run never submits more than one chunk at a time, so the queue stays small
+        executor = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable, "payment-reconciliation-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Scheduled(fixedDelayString = "${payment.reconciliation.interval-ms:900000}",
+            initialDelayString = "${payment.reconciliation.initial-delay-ms:60000}")
+    public int reconcile() {
+        long startedAt = System.currentTimeMillis();
+        int settledThisRun = walk(lastId -> jdbcTemplate.query(PAGE_SQL, this::mapRow, lastId, CHUNK_SIZE));
+        runs.incrementAndGet();
+        lastRunMillis = System.currentTimeMillis() - startedAt;
+        return settledThisRun;
+    }
+
+    // the reservation sweeper leaves open sessions alone once they expire; they are settled here on its schedule,
+    // and a session the gateway cannot answer for keeps its stock until it can
+    @Scheduled(fixedDelayString = "${inventory.reservation.sweep-interval-ms:60000}")
+    public int settleExpired() {
+        var now = Timestamp.from(Instant.now());
+        return walk(lastId -> jdbcTemplate.query(EXPIRED_PAGE_SQL, this::mapRow, now, lastId, CHUNK_SIZE));
+    }
+
+    public PaymentReconciliationStatsDTO getStats() {
+        return new PaymentReconciliationStatsDTO(runs.get(), checked.get(), settled.get(), lookupFailures.get(),
+                failedChunks.get(), lastRunMillis);
+    }
+
+    private int walk(LongFunction<List<PendingPayment>> page) {
+        int settledThisWalk = 0;
+        long lastId = 0;
+        List<PendingPayment> chunk;
+        do {
+            chunk = page.apply(lastId);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            lastId = chunk.get(chunk.size() - 1).id();
+            settledThisWalk += reconcile(chunk);
+        } while (chunk.size() == CHUNK_SIZE);
+        return settledThisWalk;
+    }
+
+    private int reconcile(List<PendingPayment> chunk) {
+        List<CompletableFuture<Optional<String>>> lookups = chunk.stream()
+                .map(payment -> CompletableFuture.supplyAsync(() -> paymentGateway.getSessionStatus(payment.sessionId()), executor)
+                        .exceptionally(failure -> {
+                            // a session the gateway could not answer for is simply asked again next run
+                            lookupFailures.incrementAndGet();
+                            return Optional.empty();
+                        }))
+                .toList();
+        Map<String, String> statusBySession = new LinkedHashMap<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            String sessionId = chunk.get(i).sessionId();
+            lookups.get(i).join().ifPresent(status -> statusBySession.put(sessionId, status));
+        }
+        checked.addAndGet(chunk.size());
+        if (statusBySession.isEmpty()) {
+            return 0;
+        }
+        try {
+            // the same conditional batch as webhooks, so a payment settled meanwhile is left alone
+            paymentStatusUpdater.apply(statusBySession);
+        } catch (RuntimeException e) {
+            failedChunks.incrementAndGet();
+            return 0;
+        }
+        settled.addAndGet(statusBySession.size());
+        return statusBySession.size();
+    }
+
+    private PendingPayment mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new PendingPayment(rs.getLong("id"), rs.getString("session_id"));
+    }
+
+    private record PendingPayment(Long id, String sessionId) {
+    }
+}
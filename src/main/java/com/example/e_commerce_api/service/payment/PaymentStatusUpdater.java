@@ -0,0 +1,51 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.repository.UserRepository;
+import com.example.e_commerce_api.service.inventory.StockReservationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+public class PaymentStatusUpdater {
+
+    public static final String PAID = "PAID";
+
+    private static final String UPDATE_SQL = "UPDATE payment SET status = ? WHERE session_id = ? AND status IN ('PENDING', 'CREATED')";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final StockReservationService stockReservationService;
+
+    private final UserRepository userRepository;
+
+    // statuses only ever leave PENDING/CREATED, so replayed and reordered events are harmless no-ops
+    @Transactional
+    public void apply(Map<String, String> statusBySession) {
+        Map<String, List<String>> sessionsByStatus = new LinkedHashMap<>();
+        statusBySession.forEach((sessionId, status) ->
+                sessionsByStatus.computeIfAbsent(status, ignored -> new ArrayList<>()).add(sessionId));
+        sessionsByStatus.forEach((status, sessionIds) -> {
+            if (!PAID.equals(status)) {
+                // closing through the reservations hands their stock back in the same transaction
+                stockReservationService.closeSessions(sessionIds, status);
+            }
+            jdbcTemplate.batchUpdate(UPDATE_SQL, sessionIds, sessionIds.size(), (ps, sessionId) -> {
+                ps.setString(1, status);
+                ps.setString(2, sessionId);
+            });
+            if (PAID.equals(status)) {
+                // sold stock must not be released by the reservation sweeper
+                stockReservationService.confirmSessions(sessionIds);
+                userRepository.releasePaidActiveCarts(sessionIds);
+            }
+        });
+    }
+}
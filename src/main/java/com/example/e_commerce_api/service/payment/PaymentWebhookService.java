@@ -0,0 +1,99 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.dto.PaymentWebhookStatsDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+@RequiredArgsConstructor
+public class PaymentWebhookService {
+
+    public static final int BATCH_SIZE = 500;
+
+    private final PaymentGateway paymentGateway;
+
+    private final PaymentStatusUpdater paymentStatusUpdater;
+
+    @Value("${payment.webhook.queue-capacity:10000}")
+    private int queueCapacity;
+
+    private BlockingQueue<PaymentEvent> queue;
+
+    private final AtomicLong received = new AtomicLong();
+
+    private final AtomicLong ignored = new AtomicLong();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final AtomicLong applied = new AtomicLong();
+
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    // false when the queue is full; the gateway then gets an error and redelivers the event later
+    public boolean receive(String payload, String signature) {
+        var event = paymentGateway.parseWebhook(payload, signature);
+        received.incrementAndGet();
+        if (event.isEmpty()) {
+            ignored.incrementAndGet();
+            return true;
+        }
+        if (!queue.offer(event.get())) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    @Scheduled(fixedDelayString = "${payment.webhook.drain-interval-ms:200}")
+    public int drain() {
+        int drained = 0;
+        List<PaymentEvent> batch = new ArrayList<>(BATCH_SIZE);
+        while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+            // one row per session and batch; a payment confirmation outranks anything delivered around it
+            Map<String, String> statusBySession = new LinkedHashMap<>();
+            for (PaymentEvent event : batch) {
+                statusBySession.merge(event.sessionId(), event.status(),
+                        (current, next) -> PaymentStatusUpdater.PAID.equals(current) ? current : next);
+            }
+            try {
+                paymentStatusUpdater.apply(statusBySession);
+            } catch (RuntimeException e) {
+                // put the events back for the next run; whatever does not fit is left to reconciliation
+                failedBatches.incrementAndGet();
+                batch.forEach(queue::offer);
+                break;
+            }
+            applied.addAndGet(batch.size());
+            drained += batch.size();
+            batch.clear();
+        }
+        return drained;
+    }
+
+    @PreDestroy
+    public void stop() {
+        drain();
+    }
+
+    public PaymentWebhookStatsDTO getStats() {
+        return new PaymentWebhookStatsDTO(queue.size(), received.get(), ignored.get(), dropped.get(), applied.get(),
+                failedBatches.get());
+    }
+}
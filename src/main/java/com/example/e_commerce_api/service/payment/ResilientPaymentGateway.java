@@ -0,0 +1,201 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.dto.PaymentGatewayStatsDTO;
+import com.example.e_commerce_api.exception.PaymentGatewayException;
+import com.example.e_commerce_api.exception.PaymentGatewayUnavailableException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// wraps the remote gateway so a degraded provider fails checkouts fast instead of holding threads
+@Component
+@Primary
+public class ResilientPaymentGateway implements PaymentGateway {
+
+    private final PaymentGateway delegate;
+
+    @Value("${payment.gateway.deadline-ms:8000}")
+    private long deadlineMs;
+
+    @Value("${payment.gateway.max-concurrent:16}")
+    private int maxConcurrent;
+
+    @Value("${payment.gateway.breaker.window-size:20}")
+    private int windowSize;
+
+    @Value("${payment.gateway.breaker.minimum-calls:10}")
+    private int minimumCalls;
+
+    @Value("${payment.gateway.breaker.failure-rate-percent:50}")
+    private int failureRatePercent;
+
+    @Value("${payment.gateway.breaker.open-ms:30000}")
+    private long openMs;
+
+    private CircuitBreaker circuitBreaker;
+
+    private Semaphore bulkhead;
+
+    private ThreadPoolExecutor executor;
+
+    private final AtomicLong calls = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong timeouts = new AtomicLong();
+
+    private final AtomicLong rejectedOpen = new AtomicLong();
+
+    private final AtomicLong rejectedBulkhead = new AtomicLong();
+
+    public ResilientPaymentGateway(@Qualifier("remotePaymentGateway") PaymentGateway delegate) {
+        this.delegate = delegate;
+    }
+
+    @PostConstruct
+    public void start() {
+        circuitBreaker = new CircuitBreaker(windowSize, minimumCalls, failureRatePercent, openMs, System::nanoTime);
+        bulkhead = new Semaphore(maxConcurrent);
+        var threadIds = new AtomicInteger();
+        // the semaphore caps running calls, so the queue never holds more than the few handoffs in between
+        executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable, "payment-gateway-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.allowsCalls();
+    }
+
+    @Override
+    public CheckoutSession createCheckoutSession(CheckoutRequest request) {
+        return call(() -> delegate.createCheckoutSession(request));
+    }
+
+    @Override
+    public void expireCheckoutSession(String sessionId) {
+        call(() -> {
+            delegate.expireCheckoutSession(sessionId);
+            return null;
+        });
+    }
+
+    @Override
+    public Optional<String> getSessionStatus(String sessionId) {
+        return call(() -> delegate.getSessionStatus(sessionId));
+    }
+
+    @Override
+    public Optional<PaymentEvent> parseWebhook(String payload, String signature) {
+        // local signature check, nothing to protect
+        return delegate.parseWebhook(payload, signature);
+    }
+
+    public PaymentGatewayStatsDTO getStats() {
+        return new PaymentGatewayStatsDTO(circuitBreaker.state().name(), maxConcurrent - bulkhead.availablePermits(),
+                calls.get(), failures.get(), timeouts.get(), rejectedOpen.get(), rejectedBulkhead.get(),
+                circuitBreaker.timesOpened());
+    }
+
+    private <T> T call(Callable<T> remoteCall) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            rejectedOpen.incrementAndGet();
+            throw new PaymentGatewayUnavailableException("Payment gateway is unavailable");
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.releasePermission();
+            rejectedBulkhead.incrementAndGet();
+            throw new PaymentGatewayUnavailableException("Too many payment gateway calls in progress");
+        }
+        calls.incrementAndGet();
+        // whoever claims first owns the permit: the task when it starts, or the caller when it cancels a task still queued
+        var claimed = new AtomicBoolean();
+        Future<T> call;
+        try {
+            // the permit is held until the remote call really ends, even when the caller gave up on it earlier
+            call = executor.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                try {
+                    return remoteCall.call();
+                } finally {
+                    bulkhead.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            circuitBreaker.releasePermission();
+            throw new PaymentGatewayUnavailableException("Payment gateway client is shutting down");
+        }
+        try {
+            T result = call.get(deadlineMs, TimeUnit.MILLISECONDS);
+            circuitBreaker.onSuccess();
+            return result;
+        } catch (TimeoutException e) {
+            abandon(call, claimed);
+            timeouts.incrementAndGet();
+            circuitBreaker.onFailure();
+            throw new PaymentGatewayException("Payment gateway did not answer within " + deadlineMs + " ms", e, true);
+        } catch (ExecutionException e) {
+            failures.incrementAndGet();
+            // the provider answered a request it refused, so only outages count towards opening the circuit
+            if (isOutage(e.getCause())) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new PaymentGatewayException(String.valueOf(e.getCause().getMessage()), e.getCause(), isOutage(e.getCause()));
+        } catch (InterruptedException e) {
+            abandon(call, claimed);
+            circuitBreaker.releasePermission();
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Interrupted while waiting for the payment gateway", e);
+        }
+    }
+
+    private void abandon(Future<?> call, AtomicBoolean claimed) {
+        call.cancel(true);
+        if (claimed.compareAndSet(false, true)) {
+            bulkhead.release();
+        }
+    }
+
+    private static boolean isOutage(Throwable failure) {
+        return (failure instanceof PaymentGatewayException e && e.isTransientFailure())
+                || failure instanceof IOException
+                || failure instanceof UncheckedIOException;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.exception.PaymentGatewayException;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.exception.StripeException;
+import com.stripe.model.Event;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.Webhook;
+import com.stripe.param.checkout.SessionCreateParams;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+@Component
+@Qualifier("remotePaymentGateway")
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stripe", matchIfMissing = true)
+public class StripePaymentGateway implements PaymentGateway {
+
+    @Value("${STRIPE_SK}")
+    private String stripeSecretKey;
+
+    @Value("${STRIPE_WEBHOOK_SECRET:}")
+    private String webhookSecret;
+
+    @Value("${payment.gateway.stripe.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+
+    @Value("${payment.gateway.stripe.read-timeout-ms:8000}")
+    private int readTimeoutMs;
+
+    @Override
+    public CheckoutSession createCheckoutSession(CheckoutRequest request) {
+        SessionCreateParams params = SessionCreateParams.builder()
+                .setMode(SessionCreateParams.Mode.PAYMENT)
+                .setSuccessUrl("https://meusite.com/success")
+                .setCancelUrl("https://meusite.com/cancel")
+                .addAllLineItem(request.lineItems().stream()
+                        .map(item -> SessionCreateParams.LineItem.builder()
+                                .setQuantity(item.quantity())
+                                .setPriceData(
+                                        SessionCreateParams.LineItem.PriceData.builder()
+                                                .setCurrency("brl")
+                                                .setUnitAmount(item.unitAmountCents())
+                                                .setProductData(
+                                                        SessionCreateParams.LineItem.PriceData.ProductData.builder()
+                                                                .setName(item.name())
+                                                                .build()
+                                                )
+                                                .build()
+                                )
+                                .build())
+                        .toList())
+                .setClientReferenceId(request.cartId().toString())
+                .setExpiresAt(request.expiresAt().getEpochSecond())
+                .build();
+        // the payment id makes a retried call return the same session instead of opening a second one
+        RequestOptions options = requestOptions()
+                .setIdempotencyKey("checkout-" + request.paymentId())
+                .build();
+        try {
+            Session session = Session.create(params, options);
+            return new CheckoutSession(session.getId(), session.getUrl());
+        } catch (StripeException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public void expireCheckoutSession(String sessionId) {
+        var session = new Session();
+        session.setId(sessionId);
+        try {
+            session.expire(requestOptions().build());
+        } catch (StripeException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public Optional<String> getSessionStatus(String sessionId) {
+        Session session;
+        try {
+            session = Session.retrieve(sessionId, requestOptions().build());
+        } catch (StripeException e) {
+            throw translate(e);
+        }
+        // a complete session whose delayed payment has not settled yet stays open for us
+        if ("complete".equals(session.getStatus())
+                && ("paid".equals(session.getPaymentStatus()) || "no_payment_required".equals(session.getPaymentStatus()))) {
+            return Optional.of("PAID");
+        }
+        if ("expired".equals(session.getStatus())) {
+            return Optional.of("EXPIRED");
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<PaymentEvent> parseWebhook(String payload, String signature) {
+        Event event;
+        try {
+            event = Webhook.constructEvent(payload, signature, webhookSecret);
+        } catch (SignatureVerificationException e) {
+            throw new PaymentGatewayException("Invalid webhook signature", e);
+        }
+        String status = switch (event.getType()) {
+            case "checkout.session.completed", "checkout.session.async_payment_succeeded" -> "PAID";
+            case "checkout.session.async_payment_failed" -> "FAILED";
+            case "checkout.session.expired" -> "EXPIRED";
+            default -> null;
+        };
+        if (status == null) {
+            return Optional.empty();
+        }
+        Session session;
+        try {
+            session = (Session) event.getDataObjectDeserializer().deserializeUnsafe();
+        } catch (EventDataObjectDeserializationException e) {
+            throw new PaymentGatewayException("Unreadable webhook payload", e);
+        }
+        // a completed session with a delayed payment method is settled later by async_payment_succeeded
+        if ("PAID".equals(status) && !"paid".equals(session.getPaymentStatus())) {
+            return Optional.empty();
+        }
+        return Optional.of(new PaymentEvent(session.getId(), status));
+    }
+
+    // network errors, timeouts and 5xx answers say the provider is unhealthy; invalid requests and card errors do not
+    private static PaymentGatewayException translate(StripeException e) {
+        boolean transientFailure = e instanceof ApiConnectionException
+                || (e.getStatusCode() != null && e.getStatusCode() >= 500);
+        return new PaymentGatewayException(e.getMessage(), e, transientFailure);
+    }
+
+    private RequestOptions.RequestOptionsBuilder requestOptions() {
+        return RequestOptions.builder()
+                .setApiKey(stripeSecretKey)
+                .setConnectTimeout(connectTimeoutMs)
+                .setReadTimeout(readTimeoutMs);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.e_commerce_api.service.search;
+
+import com.example.e_commerce_api.model.Product;
+
+public interface ProductIndex {
+    void index(Product product);
+    void remove(Long productId);
+
+    void clear();
+}
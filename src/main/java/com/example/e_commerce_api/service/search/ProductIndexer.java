@@ -0,0 +1,49 @@
+package com.example.e_commerce_api.service.search;
+
+import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class ProductIndexer {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final ProductRepository productRepository;
+
+    private final List<ProductIndex> indexes;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        indexes.forEach(ProductIndex::clear);
+        long cursor = 0L;
+        List<Product> batch;
+        do {
+            batch = productRepository.findPageAfter(cursor, null, null, false, PageRequest.of(0, REBUILD_BATCH_SIZE));
+            for (Product product : batch) {
+                indexes.forEach(index -> index.index(product));
+            }
+            if (!batch.isEmpty()) {
+                cursor = batch.get(batch.size() - 1).getId();
+            }
+        } while (batch.size() == REBUILD_BATCH_SIZE);
+    }
+
+    public void onSaved(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        indexes.forEach(index -> index.index(product));
+    }
+
+    public void onDeleted(Long productId) {
+        indexes.forEach(index -> index.remove(productId));
+    }
+}
@@ -0,0 +1,413 @@
+package com.example.e_commerce_api.service.search;
+
+import com.example.e_commerce_api.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+public class ProductSearchIndex implements ProductIndex {
+
+    private static final int NAME_WEIGHT = 3;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MAX_WEIGHT = 255;
+    private static final float PREFIX_MATCH_FACTOR = 0.7f;
+    private static final int MAX_PREFIX_EXPANSIONS = 64;
+    private static final int MIN_DELETED_BEFORE_COMPACTION = 10_000;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // sorted so the last query token can be expanded as a prefix with a range scan
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    private final Map<Long, Doc> docs = new HashMap<>();
+
+    private long[] productIds = new long[1024];
+
+    private final BitSet deleted = new BitSet();
+
+    private final ThreadLocal<Scratch> scratches = ThreadLocal.withInitial(Scratch::new);
+
+    private int nextOrdinal;
+
+    private int deletedCount;
+
+    @Override
+    public void index(Product product) {
+        var weights = termWeights(product);
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            int ordinal = nextOrdinal++;
+            if (ordinal == productIds.length) {
+                productIds = Arrays.copyOf(productIds, productIds.length * 2);
+            }
+            productIds[ordinal] = product.getId();
+
+            var docTerms = new String[weights.size()];
+            int i = 0;
+            for (var entry : weights.entrySet()) {
+                var postings = terms.get(entry.getKey());
+                if (postings == null) {
+                    postings = new Postings();
+                    terms.put(entry.getKey(), postings);
+                }
+                postings.add(ordinal, Math.min(entry.getValue(), MAX_WEIGHT));
+                docTerms[i++] = entry.getKey();
+            }
+            docs.put(product.getId(), new Doc(ordinal, docTerms));
+            // an update tombstones the old ordinal just like a removal does
+            compactIfMostlyDeleted();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+            compactIfMostlyDeleted();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            terms.clear();
+            docs.clear();
+            deleted.clear();
+            productIds = new long[1024];
+            nextOrdinal = 0;
+            deletedCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ordinals handed out since the last compaction, live or deleted
+    int allocatedOrdinals() {
+        lock.readLock().lock();
+        try {
+            return nextOrdinal;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Long> search(String query, int limit) {
+        var tokens = TextNormalizer.tokenize(query);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        var scratch = scratches.get();
+        try {
+            scratch.ensureCapacity(nextOrdinal);
+            for (int i = 0; i < tokens.size(); i++) {
+                scoreToken(tokens.get(i), i == tokens.size() - 1, scratch);
+                // every token has to match: the first one seeds the candidates, later ones only narrow them
+                if (i == 0) {
+                    scratch.seedCandidates();
+                } else {
+                    scratch.narrowCandidates();
+                }
+                scratch.clearToken();
+                if (scratch.candidateCount == 0) {
+                    return List.of();
+                }
+            }
+            return topResults(scratch, limit);
+        } finally {
+            scratch.clear();
+            lock.readLock().unlock();
+        }
+    }
+
+    private void scoreToken(String token, boolean allowPrefix, Scratch scratch) {
+        int docCount = docs.size();
+        var exact = terms.get(token);
+        if (exact != null) {
+            accumulate(exact, docCount, 1f, scratch);
+        }
+        if (allowPrefix) {
+            for (var postings : prefixExpansions(token)) {
+                accumulate(postings, docCount, PREFIX_MATCH_FACTOR, scratch);
+            }
+        }
+    }
+
+    // a short prefix can match thousands of terms; the ones in the most documents are the likeliest completions
+    private Collection<Postings> prefixExpansions(String prefix) {
+        var completions = terms.subMap(prefix, false, prefix + Character.MAX_VALUE, false).values();
+        if (completions.size() <= MAX_PREFIX_EXPANSIONS) {
+            return completions;
+        }
+        var mostFrequent = new PriorityQueue<Postings>(MAX_PREFIX_EXPANSIONS + 1, Comparator.comparingInt(postings -> postings.live));
+        for (var postings : completions) {
+            mostFrequent.offer(postings);
+            if (mostFrequent.size() > MAX_PREFIX_EXPANSIONS) {
+                mostFrequent.poll();
+            }
+        }
+        return mostFrequent;
+    }
+
+    private void accumulate(Postings postings, int docCount, float factor, Scratch scratch) {
+        float idf = (float) Math.log(1.0 + (double) docCount / postings.live);
+        for (int i = 0; i < postings.size; i++) {
+            int ordinal = postings.docs[i];
+            if (deleted.get(ordinal)) {
+                continue;
+            }
+            scratch.offerToken(ordinal, idf * (postings.weights[i] & 0xFF) * factor);
+        }
+    }
+
+    // bounded min-heap of candidate ordinals keyed by their summed score, so ranking allocates only the result
+    private List<Long> topResults(Scratch scratch, int limit) {
+        float[] scores = scratch.total;
+        int[] heap = new int[Math.min(limit, scratch.candidateCount)];
+        int size = 0;
+        for (int c = 0; c < scratch.candidateCount; c++) {
+            int ordinal = scratch.candidates[c];
+            if (size < heap.length) {
+                heap[size] = ordinal;
+                siftUp(heap, size++, scores);
+            } else if (scores[ordinal] > scores[heap[0]]) {
+                heap[0] = ordinal;
+                siftDown(heap, size, scores);
+            }
+        }
+        var results = new Long[size];
+        while (size > 0) {
+            results[size - 1] = productIds[heap[0]];
+            heap[0] = heap[--size];
+            siftDown(heap, size, scores);
+        }
+        return Arrays.asList(results);
+    }
+
+    private static void siftUp(int[] heap, int index, float[] scores) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (scores[heap[parent]] <= scores[heap[index]]) {
+                return;
+            }
+            swap(heap, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, int size, float[] scores) {
+        int index = 0;
+        while (true) {
+            int smallest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && scores[heap[left]] < scores[heap[smallest]]) {
+                smallest = left;
+            }
+            if (right < size && scores[heap[right]] < scores[heap[smallest]]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(heap, smallest, index);
+            index = smallest;
+        }
+    }
+
+    private static void swap(int[] heap, int a, int b) {
+        int tmp = heap[a];
+        heap[a] = heap[b];
+        heap[b] = tmp;
+    }
+
+    private void removeLocked(Long productId) {
+        var doc = docs.remove(productId);
+        if (doc == null) {
+            return;
+        }
+        deleted.set(doc.ordinal());
+        deletedCount++;
+        for (String term : doc.terms()) {
+            var postings = terms.get(term);
+            if (postings != null && --postings.live == 0) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    private void compactIfMostlyDeleted() {
+        if (deletedCount >= MIN_DELETED_BEFORE_COMPACTION && deletedCount * 2 > nextOrdinal) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        int[] remap = new int[nextOrdinal];
+        int live = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            remap[ordinal] = deleted.get(ordinal) ? -1 : live++;
+        }
+        for (var postings : terms.values()) {
+            postings.remap(remap);
+        }
+        var compactedIds = new long[Math.max(1024, live * 2)];
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (remap[ordinal] >= 0) {
+                compactedIds[remap[ordinal]] = productIds[ordinal];
+            }
+        }
+        docs.replaceAll((id, doc) -> new Doc(remap[doc.ordinal()], doc.terms()));
+        productIds = compactedIds;
+        deleted.clear();
+        nextOrdinal = live;
+        deletedCount = 0;
+    }
+
+    private static Map<String, Integer> termWeights(Product product) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String token : TextNormalizer.tokenize(product.getName())) {
+            weights.merge(token, NAME_WEIGHT, Integer::sum);
+        }
+        for (String token : TextNormalizer.tokenize(product.getDescription())) {
+            weights.merge(token, DESCRIPTION_WEIGHT, Integer::sum);
+        }
+        return weights;
+    }
+
+    private record Doc(int ordinal, String[] terms) {
+    }
+
+    // per-thread score arrays indexed by ordinal; only the touched slots are reset, so a query costs its postings
+    private static final class Scratch {
+        private float[] total = new float[0];
+        private float[] token = new float[0];
+        private int[] touched = new int[64];
+        private int touchedCount;
+        private int[] candidates = new int[64];
+        private int candidateCount;
+
+        private void ensureCapacity(int ordinals) {
+            if (total.length < ordinals) {
+                total = new float[ordinals];
+                token = new float[ordinals];
+            }
+        }
+
+        // a document matching several expansions of one token keeps its best one
+        private void offerToken(int ordinal, float score) {
+            if (token[ordinal] == 0f) {
+                if (touchedCount == touched.length) {
+                    touched = Arrays.copyOf(touched, touchedCount * 2);
+                }
+                touched[touchedCount++] = ordinal;
+                token[ordinal] = score;
+            } else if (score > token[ordinal]) {
+                token[ordinal] = score;
+            }
+        }
+
+        private void seedCandidates() {
+            if (candidates.length < touchedCount) {
+                candidates = new int[touchedCount];
+            }
+            for (int i = 0; i < touchedCount; i++) {
+                int ordinal = touched[i];
+                candidates[i] = ordinal;
+                total[ordinal] = token[ordinal];
+            }
+            candidateCount = touchedCount;
+        }
+
+        private void narrowCandidates() {
+            int kept = 0;
+            for (int i = 0; i < candidateCount; i++) {
+                int ordinal = candidates[i];
+                if (token[ordinal] == 0f) {
+                    total[ordinal] = 0f;
+                } else {
+                    total[ordinal] += token[ordinal];
+                    candidates[kept++] = ordinal;
+                }
+            }
+            candidateCount = kept;
+        }
+
+        private void clearToken() {
+            for (int i = 0; i < touchedCount; i++) {
+                token[touched[i]] = 0f;
+            }
+            touchedCount = 0;
+        }
+
+        private void clear() {
+            clearToken();
+            for (int i = 0; i < candidateCount; i++) {
+                total[candidates[i]] = 0f;
+            }
+            candidateCount = 0;
+        }
+    }
+
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private byte[] weights = new byte[4];
+        private int size;
+        private int live;
+
+        private void add(int ordinal, int weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = ordinal;
+            weights[size] = (byte) weight;
+            size++;
+            live++;
+        }
+
+        private void remap(int[] remap) {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                int target = remap[docs[i]];
+                if (target >= 0) {
+                    docs[kept] = target;
+                    weights[kept] = weights[i];
+                    kept++;
+                }
+            }
+            size = kept;
+            if (docs.length > 16 && size < docs.length / 4) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.example.e_commerce_api.service.search;
+
+import com.example.e_commerce_api.dto.ProductSuggestionDTO;
+import com.example.e_commerce_api.model.Product;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+@Component
+public class ProductSuggestIndex implements ProductIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingInt(Entry::score).reversed()
+            .thenComparing(Entry::key)
+            .thenComparingLong(Entry::id);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // radix tree: every edge carries a label, so a node exists only where names branch or end
+    private Node root = new Node("");
+
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    @Override
+    public void index(Product product) {
+        var key = normalize(product.getName());
+        int score = product.getQuantity() == null ? 0 : Math.max(product.getQuantity(), 0);
+        var entry = new Entry(product.getId(), key, product.getName(), score);
+        lock.writeLock().lock();
+        try {
+            removeLocked(product.getId());
+            if (!key.isEmpty()) {
+                insertLocked(entry);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(Long productId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            root = new Node("");
+            entries.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<ProductSuggestionDTO> suggest(String prefix, int limit) {
+        var key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        int max = Math.min(limit, MAX_SUGGESTIONS);
+        lock.readLock().lock();
+        try {
+            var node = find(key);
+            if (node == null) {
+                return List.of();
+            }
+            if (!node.dirty) {
+                return toSuggestions(node.top, max);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        // top-k lists invalidated by removals are rebuilt lazily from the children's lists
+        lock.writeLock().lock();
+        try {
+            var node = find(key);
+            if (node == null) {
+                return List.of();
+            }
+            refresh(node);
+            return toSuggestions(node.top, max);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insertLocked(Entry entry) {
+        entries.put(entry.id(), entry);
+        var path = new ArrayList<Node>();
+        var node = root;
+        path.add(node);
+        var rest = entry.key();
+        while (!rest.isEmpty()) {
+            int slot = node.slot(rest.charAt(0));
+            if (slot < 0) {
+                var leaf = new Node(rest);
+                node.insertChild(-slot - 1, leaf);
+                node = leaf;
+                path.add(node);
+                break;
+            }
+            var child = node.children[slot];
+            int common = commonPrefix(rest, child.label);
+            if (common < child.label.length()) {
+                var split = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                split.children = new Node[]{child};
+                split.firsts = new char[]{child.label.charAt(0)};
+                split.top = child.top;
+                split.dirty = child.dirty;
+                node.children[slot] = split;
+                child = split;
+            }
+            node = child;
+            path.add(node);
+            rest = rest.substring(common);
+        }
+        node.terminals = append(node.terminals, entry);
+        for (var onPath : path) {
+            if (!onPath.dirty) {
+                onPath.top = offer(onPath.top, entry);
+            }
+        }
+    }
+
+    private void removeLocked(Long productId) {
+        var entry = entries.remove(productId);
+        if (entry == null || entry.key().isEmpty()) {
+            return;
+        }
+        var node = root;
+        var path = new ArrayList<Node>();
+        path.add(node);
+        var rest = entry.key();
+        while (!rest.isEmpty()) {
+            int slot = node.slot(rest.charAt(0));
+            if (slot < 0) {
+                return;
+            }
+            node = node.children[slot];
+            path.add(node);
+            rest = rest.substring(node.label.length());
+        }
+        node.terminals = without(node.terminals, productId);
+        for (var onPath : path) {
+            if (contains(onPath.top, productId)) {
+                onPath.dirty = true;
+            }
+        }
+        prune(path);
+    }
+
+    // walks back up the removed key: emptied nodes are unlinked and a node left with one child and no terminals is
+    // merged into it, so churn never leaves dead branches or chains an insert would not have created
+    private static void prune(List<Node> path) {
+        for (int i = path.size() - 1; i > 0; i--) {
+            var node = path.get(i);
+            var parent = path.get(i - 1);
+            if (node.terminals.length > 0 || node.children.length > 1) {
+                return;
+            }
+            int slot = parent.slot(node.label.charAt(0));
+            if (node.children.length == 1) {
+                var child = node.children[0];
+                child.label = node.label + child.label;
+                parent.children[slot] = child;
+                return;
+            }
+            parent.removeChild(slot);
+        }
+    }
+
+    // nodes below the root, for tests
+    int nodeCount() {
+        lock.readLock().lock();
+        try {
+            return count(root) - 1;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static int count(Node node) {
+        int total = 1;
+        for (var child : node.children) {
+            total += count(child);
+        }
+        return total;
+    }
+
+    private Node find(String key) {
+        var node = root;
+        var rest = key;
+        while (!rest.isEmpty()) {
+            int slot = node.slot(rest.charAt(0));
+            if (slot < 0) {
+                return null;
+            }
+            var child = node.children[slot];
+            int common = commonPrefix(rest, child.label);
+            if (common == rest.length()) {
+                return child;
+            }
+            if (common < child.label.length()) {
+                return null;
+            }
+            node = child;
+            rest = rest.substring(common);
+        }
+        return node;
+    }
+
+    private void refresh(Node node) {
+        if (!node.dirty) {
+            return;
+        }
+        var candidates = new ArrayList<Entry>(Arrays.asList(node.terminals));
+        for (var child : node.children) {
+            refresh(child);
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        candidates.sort(RANKING);
+        node.top = candidates.subList(0, Math.min(MAX_SUGGESTIONS, candidates.size())).toArray(Entry[]::new);
+        node.dirty = false;
+    }
+
+    private static Entry[] offer(Entry[] top, Entry entry) {
+        if (top.length == MAX_SUGGESTIONS && RANKING.compare(entry, top[top.length - 1]) >= 0) {
+            return top;
+        }
+        int position = 0;
+        while (position < top.length && RANKING.compare(top[position], entry) < 0) {
+            position++;
+        }
+        int size = Math.min(top.length + 1, MAX_SUGGESTIONS);
+        var updated = new Entry[size];
+        System.arraycopy(top, 0, updated, 0, position);
+        updated[position] = entry;
+        System.arraycopy(top, position, updated, position + 1, size - position - 1);
+        return updated;
+    }
+
+    private static List<ProductSuggestionDTO> toSuggestions(Entry[] top, int max) {
+        var suggestions = new ArrayList<ProductSuggestionDTO>(Math.min(max, top.length));
+        for (int i = 0; i < top.length && i < max; i++) {
+            suggestions.add(new ProductSuggestionDTO(top[i].id(), top[i].name()));
+        }
+        return suggestions;
+    }
+
+    private static boolean contains(Entry[] top, Long productId) {
+        for (var entry : top) {
+            if (entry.id().equals(productId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Entry[] append(Entry[] entries, Entry entry) {
+        var updated = Arrays.copyOf(entries, entries.length + 1);
+        updated[entries.length] = entry;
+        return updated;
+    }
+
+    private static Entry[] without(Entry[] entries, Long productId) {
+        return Arrays.stream(entries).filter(entry -> !entry.id().equals(productId)).toArray(Entry[]::new);
+    }
+
+    private static int commonPrefix(String a, String b) {
+        int max = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < max && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    static String normalize(String text) {
+        return WHITESPACE.matcher(TextNormalizer.fold(text).trim()).replaceAll(" ");
+    }
+
+    private record Entry(Long id, String key, String name, int score) {
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final Entry[] NO_ENTRIES = new Entry[0];
+
+        private String label;
+        private char[] firsts = new char[0];
+        private Node[] children = NO_CHILDREN;
+        private Entry[] terminals = NO_ENTRIES;
+        private Entry[] top = NO_ENTRIES;
+        private boolean dirty;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private int slot(char first) {
+            return Arrays.binarySearch(firsts, first);
+        }
+
+        private void insertChild(int position, Node child) {
+            var updatedFirsts = new char[firsts.length + 1];
+            var updatedChildren = new Node[children.length + 1];
+            System.arraycopy(firsts, 0, updatedFirsts, 0, position);
+            System.arraycopy(children, 0, updatedChildren, 0, position);
+            updatedFirsts[position] = child.label.charAt(0);
+            updatedChildren[position] = child;
+            System.arraycopy(firsts, position, updatedFirsts, position + 1, firsts.length - position);
+            System.arraycopy(children, position, updatedChildren, position + 1, children.length - position);
+            firsts = updatedFirsts;
+            children = updatedChildren;
+        }
+
+        private void removeChild(int position) {
+            var updatedFirsts = new char[firsts.length - 1];
+            var updatedChildren = new Node[children.length - 1];
+            System.arraycopy(firsts, 0, updatedFirsts, 0, position);
+            System.arraycopy(children, 0, updatedChildren, 0, position);
+            System.arraycopy(firsts, position + 1, updatedFirsts, position, firsts.length - position - 1);
+            System.arraycopy(children, position + 1, updatedChildren, position, children.length - position - 1);
+            firsts = updatedFirsts;
+            children = updatedChildren;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.e_commerce_api.infra.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalCacheTest {
+
+    @Test
+    @DisplayName("Should return cached value and count hits and misses")
+    void getCountsHitsAndMisses() {
+        var cache = new LocalCache<Long, String>(10, Duration.ofMinutes(1));
+
+        assertNull(cache.get(1L));
+        cache.put(1L, "one");
+
+        assertEquals("one", cache.get(1L));
+        var stats = cache.stats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    @DisplayName("Should evict least recently used entry when full")
+    void putEvictsLeastRecentlyUsedEntryWhenFull() {
+        var cache = new LocalCache<Long, String>(2, Duration.ofMinutes(1));
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.get(1L);
+
+        cache.put(3L, "three");
+
+        assertEquals("one", cache.get(1L));
+        assertNull(cache.get(2L));
+        assertEquals("three", cache.get(3L));
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    @DisplayName("Should expire entries after the time to live")
+    void getExpiresEntriesAfterTtl() {
+        var now = new AtomicLong();
+        var cache = new LocalCache<Long, String>(10, Duration.ofSeconds(5), now::get);
+        cache.put(1L, "one");
+
+        now.addAndGet(Duration.ofSeconds(6).toNanos());
+
+        assertNull(cache.get(1L));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    @DisplayName("Should drop invalidated keys and ignore null values")
+    void invalidateRemovesKeysAndNullValuesAreNotStored() {
+        var cache = new LocalCache<Long, String>(10, Duration.ofMinutes(1));
+        cache.put(1L, "one");
+        cache.put(2L, "two");
+        cache.put(3L, null);
+
+        cache.invalidate(1L);
+        cache.invalidateAll(List.of(2L));
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Should skip a load result when the cache was invalidated in the meantime")
+    void putIfGenerationSkipsStaleLoads() {
+        var cache = new LocalCache<Long, String>(10, Duration.ofMinutes(1));
+        long generation = cache.generation();
+        cache.invalidate(1L);
+
+        cache.putIfGeneration(1L, "stale", generation);
+
+        assertNull(cache.get(1L));
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.e_commerce_api.infra.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    @DisplayName("Should share one load between concurrent callers of the same key")
+    void loadSharesInFlightCallForSameKey() throws Exception {
+        var singleFlight = new SingleFlight<Long, String>();
+        var loads = new AtomicInteger();
+        var loaderStarted = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(8);
+        try {
+            var results = new ArrayList<Future<String>>();
+            results.add(executor.submit(() -> singleFlight.load(1L, () -> {
+                loads.incrementAndGet();
+                loaderStarted.countDown();
+                await(release);
+                return "product";
+            })));
+            assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> singleFlight.load(1L, () -> {
+                    loads.incrementAndGet();
+                    return "duplicate";
+                })));
+            }
+            while (executor.getActiveCount() < 8) {
+                Thread.onSpinWait();
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (var result : results) {
+                assertEquals("product", result.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+            assertEquals(0, singleFlight.inFlightCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should rethrow loader failures and allow a new load afterwards")
+    void loadPropagatesFailureAndForgetsCall() {
+        var singleFlight = new SingleFlight<Long, String>();
+
+        assertThrows(IllegalStateException.class, () -> singleFlight.load(1L, () -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        assertEquals("ok", singleFlight.load(1L, () -> "ok"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.e_commerce_api.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartTest {
+
+    @Test
+    @DisplayName("Should keep the cart total in step with item additions, quantity changes and removals")
+    void totalFollowsItemChanges() {
+        var cart = new Cart();
+        var first = item(1L, 19.99, 3);
+        var second = item(2L, 0.10, 2);
+
+        cart.addItem(first);
+        cart.addItem(second);
+        assertEquals(6017L, cart.getTotalAmountCents());
+
+        first.setQuantity(1);
+        assertEquals(2019L, cart.getTotalAmountCents());
+
+        second.setUnitPrice(0.20);
+        assertEquals(2039L, cart.getTotalAmountCents());
+
+        cart.removeItem(first);
+        assertEquals(40L, cart.getTotalAmountCents());
+        assertEquals(0.4, cart.getTotalAmount());
+    }
+
+    @Test
+    @DisplayName("Should not count an item twice when it is added again after a quantity change")
+    void reAddingAnItemDoesNotDoubleCount() {
+        var cart = new Cart();
+        var line = item(1L, 15.0, 1);
+        cart.addItem(line);
+
+        line.setQuantity(4);
+        cart.addItem(line);
+
+        assertEquals(6000L, cart.getTotalAmountCents());
+        assertEquals(1, cart.getItems().size());
+    }
+
+    @Test
+    @DisplayName("Should convert prices to exact cents")
+    void convertsPricesToExactCents() {
+        assertEquals(1999L, Money.toCents(19.99));
+        assertEquals(30L, Money.toCents(0.1 + 0.2));
+        assertEquals(0L, Money.toCents(null));
+        assertEquals(19.99, Money.fromCents(1999L));
+    }
+
+    private static CartItem item(Long productId, double unitPrice, int quantity) {
+        var product = new Product();
+        product.setId(productId);
+        var item = new CartItem();
+        item.setProduct(product);
+        item.setUnitPrice(unitPrice);
+        item.setQuantity(quantity);
+        return item;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.e_commerce_api.model;
+
+// shared builders for the detached products the service and index tests feed their mocks with
+public final class TestProducts {
+
+    private TestProducts() {
+    }
+
+    public static Product product(long id, String name, String description, double price, int quantity) {
+        var product = new Product(name, description, price, quantity);
+        product.setId(id);
+        return product;
+    }
+
+    // for tests that only care about price and stock
+    public static Product product(long id, double price, int quantity) {
+        return product(id, "Product " + id, null, price, quantity);
+    }
+}
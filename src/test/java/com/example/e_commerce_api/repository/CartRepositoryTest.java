@@ -0,0 +1,177 @@
+package com.example.e_commerce_api.repository;
+
+import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.CartItem;
+import com.example.e_commerce_api.model.Payment;
+import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.model.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CartRepositoryTest {
+
+    private static final int ITEM_COUNT = 12;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    private Long cartId;
+
+    private final List<Long> productIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        var user = new User("buyer@example.com", "secret", "Buyer");
+        entityManager.persist(user);
+        var cart = new Cart(user);
+        entityManager.persist(cart);
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            var product = new Product("Product " + i, "Description", 10.0 + i, 100);
+            entityManager.persist(product);
+            productIds.add(product.getId());
+            var item = new CartItem();
+            item.setProduct(product);
+            item.setQuantity(1);
+            item.setUnitPrice(product.getPrice());
+            item.setTotalPrice();
+            cart.addItem(item);
+            entityManager.persist(item);
+        }
+        entityManager.persist(Payment.builder().cart(cart).status("CREATED").amount(100L).build());
+        entityManager.persist(Payment.builder().cart(cart).status("EXPIRED").amount(100L).build());
+        entityManager.flush();
+        entityManager.clear();
+        cartId = cart.getId();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @DisplayName("Should load a cart view with items, owner and payments in two statements")
+    void viewPlanUsesConstantStatements() {
+        var cart = cartRepository.findForViewById(cartId).orElseThrow();
+
+        assertEquals(ITEM_COUNT, cart.getItems().size());
+        assertNotNull(cart.getUser().getEmail());
+        assertEquals(2, cart.getPayments().size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should load a cart for mutation and find items by product without touching the products")
+    void updatePlanFindsItemsWithoutLoadingProducts() {
+        var cart = cartRepository.findForUpdateById(cartId).orElseThrow();
+
+        for (Long productId : productIds) {
+            var item = cart.findItem(productId);
+            assertEquals(productId, item.getProductId());
+            assertFalse(Hibernate.isInitialized(item.getProduct()));
+        }
+        assertNull(cart.findItem(-1L));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should reject a second line for the same product in a cart")
+    void rejectsDuplicateProductLines() {
+        var cart = entityManager.find(Cart.class, cartId);
+        var item = new CartItem();
+        item.setProduct(entityManager.getReference(Product.class, productIds.get(0)));
+        item.setQuantity(1);
+        item.setUnitPrice(10.0);
+        item.setTotalPrice();
+        item.setCart(cart);
+
+        assertThrows(PersistenceException.class, () -> {
+            entityManager.persist(item);
+            entityManager.flush();
+        });
+    }
+
+    @Test
+    @DisplayName("Should load a cart for checkout with items, products and owner in one statement")
+    void checkoutPlanUsesOneStatement() {
+        var cart = cartRepository.findForCheckoutById(cartId).orElseThrow();
+
+        var total = cart.getItems().stream()
+                .mapToDouble(item -> item.getProduct().getPrice() * item.getQuantity())
+                .sum();
+        assertTrue(total > 0);
+        assertNotNull(cart.getUser().getEmail());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    @DisplayName("Should read a cart total from the cart row alone")
+    void totalIsReadWithoutLoadingEntities() {
+        var total = cartRepository.findTotalAmountCentsById(cartId).orElseThrow();
+
+        long expected = 0;
+        for (int i = 0; i < ITEM_COUNT; i++) {
+            expected += (10 + i) * 100L;
+        }
+        assertEquals(expected, total);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertTrue(cartRepository.findTotalAmountCentsById(-1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reap idle carts without payments and keep checked-out and recent ones")
+    void reapsOnlyAbandonedCarts() {
+        var user = new User("idle@example.com", "secret", "Idle");
+        entityManager.persist(user);
+        var abandoned = new Cart(user);
+        entityManager.persist(abandoned);
+        var item = new CartItem();
+        item.setProduct(entityManager.getReference(Product.class, productIds.get(0)));
+        item.setQuantity(1);
+        item.setUnitPrice(10.0);
+        abandoned.addItem(item);
+        entityManager.persist(item);
+        var recent = new Cart(user);
+        entityManager.persist(recent);
+        entityManager.flush();
+        var cutoff = Instant.now().minus(Duration.ofDays(7));
+        entityManager.createNativeQuery("UPDATE cart SET updated_at = ? WHERE id <> ?")
+                .setParameter(1, cutoff.minus(Duration.ofDays(1)))
+                .setParameter(2, recent.getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        var ids = cartRepository.findAbandonedIds(cutoff, Limit.of(10));
+        assertEquals(List.of(abandoned.getId()), ids);
+        assertEquals(1, cartItemRepository.deleteAllOfAbandonedCarts(ids, cutoff));
+        assertEquals(1, cartRepository.deleteAbandoned(ids, cutoff));
+
+        assertTrue(cartRepository.findById(abandoned.getId()).isEmpty());
+        assertTrue(cartRepository.findById(cartId).isPresent());
+        assertTrue(cartRepository.findById(recent.getId()).isPresent());
+    }
+}
@@ -74,5 +74,21 @@ class PaymentServiceTest {
         assertSame(cart, result.getCart());
     }
 
+    @Test
+    @DisplayName("Should attach the session only while the payment is still pending")
+    void attachSessionOnlyUpdatesPendingPayment() {
+        var paymentRepository = mock(PaymentRepository.class);
+        var paymentService = new PaymentService(paymentRepository);
+        var payment = Payment.builder().id(9L).status("PENDING").build();
+        when(paymentRepository.attachSession(9L, "cs_1", "url")).thenReturn(1, 0);
 
+        assertTrue(paymentService.attachSession(payment, "cs_1", "url"));
+        assertEquals("CREATED", payment.getStatus());
+        assertEquals("cs_1", payment.getSessionId());
+
+        var expired = Payment.builder().id(9L).status("EXPIRED").build();
+        assertFalse(paymentService.attachSession(expired, "cs_1", "url"));
+        assertEquals("EXPIRED", expired.getStatus());
+        assertNull(expired.getSessionId());
+    }
 }
\ No newline at end of file
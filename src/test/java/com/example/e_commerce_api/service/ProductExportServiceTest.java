@@ -0,0 +1,53 @@
+package com.example.e_commerce_api.service;
+
+import com.example.e_commerce_api.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+
+import static com.example.e_commerce_api.model.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductExportServiceTest {
+
+    @Test
+    @DisplayName("Should write one JSON object per line and detach every product")
+    void exportWritesNdjsonAndDetachesProducts() throws Exception {
+        var productRepository = mock(ProductRepository.class);
+        var entityManager = mock(EntityManager.class);
+        var first = product(1L, "Mouse", "USB", 12.5, 3);
+        var second = product(2L, "Pad", null, 12.5, 3);
+        when(productRepository.streamAllOrderedById()).thenReturn(Stream.of(first, second));
+        var service = new ProductExportService(productRepository, entityManager, new ObjectMapper());
+        var output = new ByteArrayOutputStream();
+
+        var written = service.export(output, ProductFileFormat.NDJSON);
+
+        assertEquals(2, written);
+        var lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"name\":\"Mouse\""));
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    @DisplayName("Should write an import-compatible CSV with escaped fields")
+    void exportWritesCsvWithHeaderAndEscaping() throws Exception {
+        var productRepository = mock(ProductRepository.class);
+        when(productRepository.streamAllOrderedById()).thenReturn(Stream.of(product(7L, "Desk, oak", "Solid \"oak\"", 12.5, 3)));
+        var service = new ProductExportService(productRepository, mock(EntityManager.class), new ObjectMapper());
+        var output = new ByteArrayOutputStream();
+
+        service.export(output, ProductFileFormat.CSV);
+
+        assertEquals(ProductExportService.CSV_HEADER + "\n7,\"Desk, oak\",\"Solid \"\"oak\"\"\",12.5,3\n",
+                output.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.e_commerce_api.service;
+
+import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.service.inventory.FlashSaleStockService;
+import com.example.e_commerce_api.service.search.ProductIndexer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+class ProductImportServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ProductService productService;
+    private ProductIndexer productIndexer;
+    private FlashSaleStockService flashSaleStockService;
+    private ProductImportService service;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        productService = mock(ProductService.class);
+        productIndexer = mock(ProductIndexer.class);
+        flashSaleStockService = mock(FlashSaleStockService.class);
+        var transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class), any(KeyHolder.class)))
+                .thenAnswer(invocation -> {
+                    BatchPreparedStatementSetter setter = invocation.getArgument(1);
+                    KeyHolder keyHolder = invocation.getArgument(2);
+                    for (int i = 0; i < setter.getBatchSize(); i++) {
+                        Map<String, Object> key = new HashMap<>();
+                        key.put("id", 100L + i);
+                        keyHolder.getKeyList().add(key);
+                    }
+                    return new int[setter.getBatchSize()];
+                });
+        service = new ProductImportService(jdbcTemplate, transactionTemplate,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(),
+                productService, productIndexer, flashSaleStockService);
+    }
+
+    private static ByteArrayInputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Should insert valid NDJSON rows and report invalid ones with their line number")
+    void importNdjsonInsertsValidRowsAndReportsInvalidOnes() throws Exception {
+        var input = """
+                {"name":"Mouse","description":"USB","price":25.5,"quantity":10}
+                {"name":"","price":10.0,"quantity":1}
+
+                {"name":"Keyboard","price":-1,"quantity":1}
+                not json
+                {"name":"Monitor","price":900.0,"quantity":2}
+                """;
+
+        var report = service.importProducts(body(input), ProductFileFormat.NDJSON);
+
+        assertEquals(5, report.processed());
+        assertEquals(2, report.inserted());
+        assertEquals(3, report.failed());
+        assertEquals(List.of(2L, 4L, 5L), report.errors().stream().map(e -> e.line()).toList());
+        assertTrue(report.errors().get(0).message().startsWith("name"));
+        var indexed = ArgumentCaptor.forClass(Product.class);
+        verify(productIndexer, times(2)).onSaved(indexed.capture());
+        assertEquals(List.of(100L, 101L), indexed.getAllValues().stream().map(Product::getId).toList());
+        assertEquals("Monitor", indexed.getAllValues().get(1).getName());
+    }
+
+    @Test
+    @DisplayName("Should update CSV rows that carry an id and report unknown ids")
+    void importCsvUpdatesRowsWithIdAndReportsMissingProducts() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenReturn(new int[]{1, 0});
+        var input = """
+                id,name,description,price,quantity
+                7,"Desk, oak","Solid ""oak"" desk",300.0,4
+                8,Chair,,50.0,3
+                ,Lamp,,20.0,9
+                """;
+
+        var report = service.importProducts(body(input), ProductFileFormat.CSV);
+
+        assertEquals(3, report.processed());
+        assertEquals(1, report.inserted());
+        assertEquals(1, report.updated());
+        assertEquals(1, report.failed());
+        assertEquals(3L, report.errors().get(0).line());
+        verify(productService).evictFromCache(List.of(7L));
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE product SET name = ?, description = ?, price = ?, quantity = ? WHERE id = ?"),
+                any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    @DisplayName("Should move the flash-sale counters by the change an import makes to a flash-sale product")
+    void importRestocksFlashSaleProducts() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenReturn(new int[]{1, 1});
+        doAnswer(invocation -> {
+            var rs = mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn(7L);
+            when(rs.getInt("quantity")).thenReturn(10);
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT id, quantity FROM product WHERE flash_sale = true"),
+                any(RowCallbackHandler.class), any(Object[].class));
+        var input = """
+                id,name,description,price,quantity
+                7,Desk,,300.0,4
+                8,Chair,,50.0,3
+                """;
+
+        service.importProducts(body(input), ProductFileFormat.CSV);
+
+        verify(flashSaleStockService).restock(7L, -6);
+        verify(flashSaleStockService, never()).restock(eq(8L), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should flush in bounded batches")
+    void importFlushesInBatches() throws Exception {
+        var input = new StringBuilder();
+        for (int i = 0; i < ProductImportService.BATCH_SIZE * 2 + 1; i++) {
+            input.append("{\"name\":\"p").append(i).append("\",\"price\":1.0,\"quantity\":1}\n");
+        }
+
+        var report = service.importProducts(body(input.toString()), ProductFileFormat.NDJSON);
+
+        assertEquals(ProductImportService.BATCH_SIZE * 2 + 1, report.inserted());
+        verify(jdbcTemplate, times(3)).batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+    }
+
+    @Test
+    @DisplayName("Should read quoted CSV fields that span several lines, as the export writes them")
+    void importCsvReadsMultiLineQuotedFields() throws Exception {
+        var names = new ArrayList<String>();
+        var descriptions = new ArrayList<String>();
+        stubInsertsRecording(names, descriptions, null);
+        var input = "name,description,price,quantity\n"
+                + "Desk,\"Solid oak\nwith drawers\",300.0,4\n"
+                + "Lamp,,20.0,9\n"
+                + "Bad,,oops,1\n";
+
+        var report = service.importProducts(body(input), ProductFileFormat.CSV);
+
+        assertEquals(3, report.processed());
+        assertEquals(2, report.inserted());
+        assertEquals(List.of("Desk", "Lamp"), names);
+        assertEquals("Solid oak\nwith drawers", descriptions.get(0));
+        assertEquals(5L, report.errors().get(0).line());
+    }
+
+    @Test
+    @DisplayName("Should report a line with an unclosed quote and go on with the next line")
+    void importCsvResumesAfterUnclosedQuote() throws Exception {
+        var names = new ArrayList<String>();
+        stubInsertsRecording(names, new ArrayList<>(), null);
+        var input = new StringBuilder("name,description,price,quantity\n")
+                .append("Desk,\"Solid oak,300.0,4\n");
+        for (int i = 0; i < ProductImportService.MAX_RECORD_LINES + 5; i++) {
+            input.append("Lamp ").append(i).append(",,20.0,9\n");
+        }
+
+        var report = service.importProducts(body(input.toString()), ProductFileFormat.CSV);
+
+        assertEquals(ProductImportService.MAX_RECORD_LINES + 6, report.processed());
+        assertEquals(ProductImportService.MAX_RECORD_LINES + 5, report.inserted());
+        assertEquals(1, report.failed());
+        assertEquals(2L, report.errors().get(0).line());
+        assertEquals("Lamp 0", names.get(0));
+    }
+
+    @Test
+    @DisplayName("Should replay a rejected chunk row by row and report only the offending row")
+    void importReportsOnlyTheRowTheDatabaseRejects() throws Exception {
+        var names = new ArrayList<String>();
+        stubInsertsRecording(names, new ArrayList<>(), "Broken");
+        var input = """
+                {"name":"Mouse","price":25.5,"quantity":10}
+                {"name":"Broken","price":1.0,"quantity":1}
+                {"name":"Monitor","price":900.0,"quantity":2}
+                """;
+
+        var report = service.importProducts(body(input), ProductFileFormat.NDJSON);
+
+        assertEquals(2, report.inserted());
+        assertEquals(1, report.failed());
+        assertEquals(2L, report.errors().get(0).line());
+        assertTrue(report.errors().get(0).message().startsWith("Row rejected"));
+        assertEquals(List.of("Mouse", "Monitor"), names);
+    }
+
+    @Test
+    @DisplayName("Should reject CSV without required columns")
+    void importCsvRejectsIncompleteHeader() {
+        assertThrows(IllegalArgumentException.class,
+                () -> service.importProducts(body("name,price\nA,1.0\n"), ProductFileFormat.CSV));
+    }
+
+    // records the inserted rows, failing any batch that contains the rejected name as the database would
+    private void stubInsertsRecording(List<String> names, List<String> descriptions, String rejectedName) throws Exception {
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class), any(KeyHolder.class)))
+                .thenAnswer(invocation -> {
+                    BatchPreparedStatementSetter setter = invocation.getArgument(1);
+                    KeyHolder keyHolder = invocation.getArgument(2);
+                    List<String> batchNames = new ArrayList<>();
+                    List<String> batchDescriptions = new ArrayList<>();
+                    var ps = mock(PreparedStatement.class);
+                    doAnswer(call -> batchNames.add(call.getArgument(1))).when(ps).setString(eq(1), any());
+                    doAnswer(call -> batchDescriptions.add(call.getArgument(1))).when(ps).setString(eq(2), any());
+                    for (int i = 0; i < setter.getBatchSize(); i++) {
+                        setter.setValues(ps, i);
+                    }
+                    if (batchNames.contains(rejectedName)) {
+                        throw new DataIntegrityViolationException("value too long for " + rejectedName);
+                    }
+                    names.addAll(batchNames);
+                    descriptions.addAll(batchDescriptions);
+                    for (int i = 0; i < setter.getBatchSize(); i++) {
+                        keyHolder.getKeyList().add(Map.of("id", 100L + names.size() - setter.getBatchSize() + i));
+                    }
+                    return new int[setter.getBatchSize()];
+                });
+    }
+}
@@ -3,6 +3,10 @@ package com.example.e_commerce_api.service;
 import com.example.e_commerce_api.dto.ProductDTO;
 import com.example.e_commerce_api.model.Product;
 import com.example.e_commerce_api.repository.ProductRepository;
+import com.example.e_commerce_api.service.inventory.FlashSaleStockService;
+import com.example.e_commerce_api.service.search.ProductIndexer;
+import com.example.e_commerce_api.service.search.ProductSearchIndex;
+import com.example.e_commerce_api.service.search.ProductSuggestIndex;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -10,11 +14,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 class ProductServiceTest {
@@ -22,6 +36,18 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ProductSuggestIndex productSuggestIndex;
+
+    @Mock
+    private ProductIndexer productIndexer;
+
+    @Mock
+    private FlashSaleStockService flashSaleStockService;
+
     @InjectMocks
     private ProductService productService;
 
@@ -30,15 +56,47 @@ class ProductServiceTest {
         MockitoAnnotations.initMocks(this);
     }
     @Test
-    @DisplayName("Should return all products when repository is not empty")
-    void getAllProductsReturnsAllProducts() {
-        var products = List.of(new Product(), new Product());
-        when(productRepository.findAll()).thenReturn(products);
+    @DisplayName("Should return next cursor when more products exist after the page")
+    void getProductsPageReturnsNextCursorWhenMoreRowsExist() {
+        var first = new Product();
+        first.setId(5L);
+        var second = new Product();
+        second.setId(8L);
+        var third = new Product();
+        third.setId(9L);
+        when(productRepository.findPageAfter(0L, null, null, false, PageRequest.of(0, 3)))
+                .thenReturn(List.of(first, second, third));
+
+        var result = productService.getProductsPage(null, 2, null, null, false);
+
+        assertEquals(List.of(first, second), result.items());
+        assertEquals(8L, result.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should return null cursor on the last page")
+    void getProductsPageReturnsNullCursorOnLastPage() {
+        var product = new Product();
+        product.setId(12L);
+        when(productRepository.findPageAfter(eq(10L), eq(1.0), eq(5.0), eq(true), any(Pageable.class)))
+                .thenReturn(List.of(product));
+
+        var result = productService.getProductsPage(10L, 20, 1.0, 5.0, true);
+
+        assertEquals(1, result.items().size());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should cap page size at the maximum allowed")
+    void getProductsPageCapsPageSize() {
+        when(productRepository.findPageAfter(0L, null, null, false, PageRequest.of(0, ProductService.MAX_PAGE_SIZE + 1)))
+                .thenReturn(List.of());
 
-        var result = productService.getAllProducts();
+        var result = productService.getProductsPage(0L, 10_000, null, null, false);
 
-        assertEquals(2, result.size());
-        assertEquals(products, result);
+        assertTrue(result.items().isEmpty());
+        assertNull(result.nextCursor());
     }
 
     @Test
@@ -65,6 +123,60 @@ class ProductServiceTest {
         assertEquals(product, result);
     }
 
+    @Test
+    @DisplayName("Should serve repeated lookups from the cache")
+    void getProductByIdServesRepeatedLookupsFromCache() {
+        var product = new Product();
+        product.setId(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        var first = productService.getProductById(1L);
+        var result = productService.getProductById(1L);
+
+        assertEquals(product, result);
+        assertNotSame(product, result);
+        assertNotSame(first, result);
+        verify(productRepository, times(1)).findById(1L);
+        assertEquals(1, productService.getCacheStats().hits());
+    }
+
+    @Test
+    @DisplayName("Should not let a caller's changes leak into the cached product")
+    void getProductByIdReturnsIndependentCopies() {
+        var product = new Product(1L, "Keyboard", "desc", 10.0, 5, false);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+
+        productService.getProductById(1L).setPrice(99.0);
+
+        assertEquals(10.0, productService.getProductById(1L).getPrice());
+    }
+
+    @Test
+    @DisplayName("Should read stock levels from the repository, bypassing the cache")
+    void getAvailableQuantitiesReadsRepository() {
+        when(productRepository.findQuantitiesByIds(List.of(1L, 2L)))
+                .thenReturn(List.<Object[]>of(new Object[]{1L, 3}, new Object[]{2L, null}));
+
+        var result = productService.getAvailableQuantities(List.of(1L, 2L));
+
+        assertEquals(Map.of(1L, 3, 2L, 0), result);
+    }
+
+    @Test
+    @DisplayName("Should reload product from repository after it is saved")
+    void saveProductInvalidatesCachedProduct() {
+        var product = new Product();
+        product.setId(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product));
+        when(productRepository.save(product)).thenReturn(product);
+
+        productService.getProductById(1L);
+        productService.saveProduct(product);
+        productService.getProductById(1L);
+
+        verify(productRepository, times(2)).findById(1L);
+    }
+
     @Test
     @DisplayName("Should return null when product ID does not exist")
     void getProductByIdReturnsNullIfNotExists() {
@@ -80,7 +192,7 @@ class ProductServiceTest {
     void patchProductUpdatesAndReturnsProduct() {
         var existingProduct = new Product();
         var productDTO = new ProductDTO("Updated Name", "Updated Description", 100.0, 10);
-        when(productRepository.findById(1L)).thenReturn(Optional.of(existingProduct));
+        when(productRepository.findForUpdateById(1L)).thenReturn(Optional.of(existingProduct));
         when(productRepository.save(existingProduct)).thenReturn(existingProduct);
 
         var result = productService.patchProduct(1L, productDTO);
@@ -90,24 +202,99 @@ class ProductServiceTest {
         assertEquals("Updated Description", existingProduct.getDescription());
         assertEquals(100.0, existingProduct.getPrice());
         assertEquals(10, existingProduct.getQuantity());
+        verifyNoInteractions(flashSaleStockService);
+    }
+
+    @Test
+    @DisplayName("Should move the flash-sale counters by the quantity change when patching a flash-sale product")
+    void patchProductRestocksFlashSaleCounters() {
+        var existingProduct = new Product(1L, "Name", "Description", 50.0, 8, true);
+        when(productRepository.findForUpdateById(1L)).thenReturn(Optional.of(existingProduct));
+        when(productRepository.save(existingProduct)).thenReturn(existingProduct);
+
+        productService.patchProduct(1L, new ProductDTO("Name", "Description", 50.0, 5));
+
+        verify(flashSaleStockService).restock(1L, -3);
     }
 
     @Test
     @DisplayName("Should return null when patching a non-existent product")
     void patchProductReturnsNullIfProductNotExists() {
         var productDTO = new ProductDTO("Name", "Description", 50.0, 5);
-        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        when(productRepository.findForUpdateById(1L)).thenReturn(Optional.empty());
 
         var result = productService.patchProduct(1L, productDTO);
 
         assertNull(result);
     }
 
+    @Test
+    @DisplayName("Should return search hits in index rank order")
+    void searchProductsKeepsIndexRankOrder() {
+        var first = new Product();
+        first.setId(3L);
+        var second = new Product();
+        second.setId(1L);
+        when(productSearchIndex.search("phone", ProductService.DEFAULT_PAGE_SIZE)).thenReturn(List.of(3L, 1L));
+        when(productRepository.findAllById(List.of(3L, 1L))).thenReturn(List.of(second, first));
+
+        var result = productService.searchProducts("phone", null);
+
+        assertEquals(List.of(first, second), result);
+    }
+
+    @Test
+    @DisplayName("Should update the search indexes when a product is saved")
+    void saveProductUpdatesIndexes() {
+        var product = new Product();
+        product.setId(4L);
+        when(productRepository.save(product)).thenReturn(product);
+
+        productService.saveProduct(product);
+
+        verify(productIndexer).onSaved(product);
+    }
+
+    @Test
+    @DisplayName("Should keep a batch lookup's product apart from the copy it caches")
+    void getProductsByIdsCachesAnIndependentCopy() {
+        var product = new Product(1L, "Keyboard", "desc", 10.0, 5, false);
+        when(productRepository.findAllById(List.of(1L))).thenReturn(List.of(product));
+
+        productService.getProductsByIds(List.of(1L)).get(1L).setPrice(99.0);
+
+        assertEquals(10.0, productService.getProductsByIds(List.of(1L)).get(1L).getPrice());
+        verify(productRepository, times(1)).findAllById(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("Should invalidate the cache and reindex a saved or deleted product only once the caller's transaction commits")
+    void saveAndDeleteInvalidateAfterCommit() {
+        var product = new Product(1L, "Keyboard", "desc", 10.0, 5, false);
+        when(productRepository.save(product)).thenReturn(product);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            productService.saveProduct(product);
+            productService.deleteProduct(1L);
+
+            verifyNoInteractions(productIndexer, flashSaleStockService);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(productIndexer).onSaved(product);
+        verify(productIndexer).onDeleted(1L);
+        verify(flashSaleStockService).forget(1L);
+    }
+
     @Test
     @DisplayName("Should delete product by ID")
     void deleteProductDeletesProduct() {
         productService.deleteProduct(1L);
 
         assertDoesNotThrow(() -> productRepository.deleteById(1L));
+        verify(productIndexer).onDeleted(1L);
+        verify(flashSaleStockService).forget(1L);
     }
 }
\ No newline at end of file
@@ -0,0 +1,56 @@
+package com.example.e_commerce_api.service.cart;
+
+import com.example.e_commerce_api.repository.CartItemRepository;
+import com.example.e_commerce_api.repository.CartRepository;
+import com.example.e_commerce_api.repository.UserRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AbandonedCartReaperTest {
+
+    @Test
+    @DisplayName("Should delete abandoned carts chunk by chunk until a short chunk comes back")
+    @SuppressWarnings("unchecked")
+    void reapsInChunks() {
+        var cartRepository = mock(CartRepository.class);
+        var cartItemRepository = mock(CartItemRepository.class);
+        var userRepository = mock(UserRepository.class);
+        var transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        var fullChunk = LongStream.range(0, AbandonedCartReaper.BATCH_SIZE).boxed().toList();
+        when(cartRepository.findAbandonedIds(any(), any())).thenReturn(fullChunk, List.of(900L, 901L));
+        when(cartRepository.deleteAbandoned(anyCollection(), any()))
+                .thenAnswer(invocation -> invocation.<List<Long>>getArgument(0).size());
+
+        var reaper = new AbandonedCartReaper(cartRepository, cartItemRepository, userRepository, transactionTemplate);
+
+        assertEquals(AbandonedCartReaper.BATCH_SIZE + 2, reaper.reap());
+        verify(cartItemRepository).deleteAllOfAbandonedCarts(eq(fullChunk), any());
+        verify(cartItemRepository).deleteAllOfAbandonedCarts(eq(List.of(900L, 901L)), any());
+        verify(transactionTemplate, times(2)).execute(any());
+        verify(userRepository).releaseDeletedActiveCarts(fullChunk);
+    }
+
+    @Test
+    @DisplayName("Should not open a transaction when no cart is abandoned")
+    void noOpWithoutAbandonedCarts() {
+        var cartRepository = mock(CartRepository.class);
+        var transactionTemplate = mock(TransactionTemplate.class);
+        when(cartRepository.findAbandonedIds(any(), any())).thenReturn(List.of());
+
+        var reaper = new AbandonedCartReaper(cartRepository, mock(CartItemRepository.class), mock(UserRepository.class), transactionTemplate);
+
+        assertEquals(0, reaper.reap());
+        verifyNoInteractions(transactionTemplate);
+    }
+}
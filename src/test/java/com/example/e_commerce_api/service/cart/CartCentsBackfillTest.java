@@ -0,0 +1,89 @@
+package com.example.e_commerce_api.service.cart;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// the legacy columns are added by hand, and DDL commits on its own, so the tests run outside the test transaction
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CartCentsBackfillTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        // a full application context started earlier in the run may already have recorded the migration
+        jdbcTemplate.update("DELETE FROM data_migration");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM cart_item");
+        jdbcTemplate.update("DELETE FROM cart");
+        jdbcTemplate.update("DELETE FROM product");
+        jdbcTemplate.update("DELETE FROM data_migration");
+        jdbcTemplate.execute("ALTER TABLE cart_item DROP COLUMN IF EXISTS unit_price");
+    }
+
+    @Test
+    @DisplayName("Should convert legacy Double prices to cents and recompute the cart total from its lines")
+    void backfillConvertsLegacyAmounts() {
+        jdbcTemplate.execute("ALTER TABLE cart_item ADD COLUMN unit_price DOUBLE PRECISION");
+        jdbcTemplate.update("INSERT INTO product (id, name, price, quantity) VALUES (1, 'Pen', 19.99, 10)");
+        jdbcTemplate.update("INSERT INTO cart (id) VALUES (1)");
+        jdbcTemplate.update("INSERT INTO cart_item (cart_id, product_id, quantity, unit_price) VALUES (1, 1, 3, 19.99)");
+
+        backfill().backfill();
+
+        assertEquals(1999L, jdbcTemplate.queryForObject("SELECT unit_price_cents FROM cart_item", Long.class));
+        assertEquals(5997L, jdbcTemplate.queryForObject("SELECT total_price_cents FROM cart_item", Long.class));
+        assertEquals(5997L, jdbcTemplate.queryForObject("SELECT total_amount_cents FROM cart WHERE id = 1", Long.class));
+
+        // the migration is recorded, so the next start neither scans nor rewrites anything
+        jdbcTemplate.update("UPDATE cart_item SET unit_price_cents = 0, unit_price = 1.0");
+        backfill().backfill();
+        assertEquals(0L, jdbcTemplate.queryForObject("SELECT unit_price_cents FROM cart_item", Long.class));
+    }
+
+    @Test
+    @DisplayName("Should do nothing on a schema that never had the Double columns")
+    void backfillSkipsFreshSchema() {
+        assertDoesNotThrow(() -> backfill().backfill());
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM data_migration WHERE name = ?", Integer.class,
+                CartCentsBackfill.MIGRATION));
+    }
+
+    @Test
+    @DisplayName("Should fail on a real SQL error instead of swallowing it")
+    void backfillPropagatesSqlErrors() {
+        jdbcTemplate.execute("ALTER TABLE cart_item ADD COLUMN unit_price VARCHAR(20)");
+        jdbcTemplate.update("INSERT INTO product (id, name, price, quantity) VALUES (1, 'Pen', 19.99, 10)");
+        jdbcTemplate.update("INSERT INTO cart (id) VALUES (1)");
+        jdbcTemplate.update("INSERT INTO cart_item (cart_id, product_id, quantity, unit_price) VALUES (1, 1, 3, 'n/a')");
+
+        assertThrows(DataAccessException.class, () -> backfill().backfill());
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM data_migration", Integer.class));
+    }
+
+    private CartCentsBackfill backfill() {
+        return new CartCentsBackfill(jdbcTemplate, new TransactionTemplate(transactionManager));
+    }
+}
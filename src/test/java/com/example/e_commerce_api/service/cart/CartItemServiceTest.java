@@ -1,5 +1,6 @@
 package com.example.e_commerce_api.service.cart;
 
+import com.example.e_commerce_api.dto.CartItemOperationDTO;
 import com.example.e_commerce_api.exception.ResourceNotFoundException;
 import com.example.e_commerce_api.model.Cart;
 import com.example.e_commerce_api.model.CartItem;
@@ -13,7 +14,10 @@ import org.junit.jupiter.api.Test;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import static com.example.e_commerce_api.model.TestProducts.product;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -35,18 +39,25 @@ class CartItemServiceTest {
         product.setQuantity(5);
         product.setPrice(20.0);
 
-        when(cartService.getCart(1L)).thenReturn(cart);
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
         when(productService.getProductById(10L)).thenReturn(product);
+        when(productService.getAvailableQuantity(10L)).thenReturn(5);
         when(cartItemRepository.save(any(CartItem.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
         when(cartRepository.save(any(Cart.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
 
         var service = new CartItemService(cartService, productService, cartItemRepository, cartRepository);
-        service.addItemToCart(1L, 10L, 2);
+        var response = service.addItemToCart(1L, 10L, 2);
 
         verify(cartItemRepository).save(any(CartItem.class));
         verify(productService).getProductById(10L);
+        verify(productService).getAvailableQuantity(10L);
+        verify(cartService, times(1)).getCartForUpdate(1L);
+        verifyNoMoreInteractions(cartService);
+        assertEquals(1L, response.id());
+        assertEquals(40.0, response.totalAmount());
+        assertSame(cart.getItems(), response.items());
         verifyNoMoreInteractions(productService);
         verify(cartRepository).save(cart);
         assertEquals(1, cart.getItems().size());
@@ -81,8 +92,9 @@ class CartItemServiceTest {
 
         cart.setItems(new HashSet<>(List.of(existingItem)));
 
-        when(cartService.getCart(1L)).thenReturn(cart);
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
         when(productService.getProductById(10L)).thenReturn(product);
+        when(productService.getAvailableQuantity(10L)).thenReturn(10);
         when(cartItemRepository.save(any(CartItem.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
         when(cartRepository.save(any(Cart.class)))
@@ -116,8 +128,9 @@ class CartItemServiceTest {
         product.setQuantity(1);
         product.setPrice(50.0);
 
-        when(cartService.getCart(1L)).thenReturn(cart);
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
         when(productService.getProductById(10L)).thenReturn(product);
+        when(productService.getAvailableQuantity(10L)).thenReturn(1);
 
         var service = new CartItemService(cartService, productService, cartItemRepository, cartRepository);
 
@@ -126,6 +139,28 @@ class CartItemServiceTest {
         verifyNoInteractions(cartRepository);
     }
 
+    @Test
+    @DisplayName("Should check stock against the live quantity rather than the cached product")
+    void addItemToCartUsesLiveStockNotCachedProduct() {
+        var cartService = mock(ICartService.class);
+        var productService = mock(ProductService.class);
+        var cartRepository = mock(CartRepository.class);
+
+        var cart = new Cart();
+        cart.setId(1L);
+        cart.setItems(new HashSet<>());
+        var staleProduct = product(10L, 50.0, 10);
+
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
+        when(productService.getProductById(10L)).thenReturn(staleProduct);
+        when(productService.getAvailableQuantity(10L)).thenReturn(1);
+
+        var service = new CartItemService(cartService, productService, mock(CartItemRepository.class), cartRepository);
+
+        assertThrows(IllegalArgumentException.class, () -> service.addItemToCart(1L, 10L, 2));
+        verifyNoInteractions(cartRepository);
+    }
+
     @Test
     @DisplayName("Should remove existing item from cart and persist cart")
     void removeItemFromCartRemovesExistingItemAndSavesCart() {
@@ -150,7 +185,7 @@ class CartItemServiceTest {
 
         cart.setItems(new HashSet<>(List.of(item)));
 
-        when(cartService.getCart(1L)).thenReturn(cart);
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
         when(cartRepository.save(any(Cart.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -173,7 +208,7 @@ class CartItemServiceTest {
         cart.setId(1L);
         cart.setItems(new HashSet<>());
 
-        when(cartService.getCart(1L)).thenReturn(cart);
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
 
         var service = new CartItemService(cartService, productService, cartItemRepository, cartRepository);
 
@@ -208,8 +243,9 @@ class CartItemServiceTest {
         cart.setItems(new HashSet<>(List.of(item)));
         cart.setTotalAmount(25.0);
 
-        when(cartService.getCart(1L)).thenReturn(cart);
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
         when(productService.getProductById(10L)).thenReturn(product);
+        when(productService.getAvailableQuantity(10L)).thenReturn(10);
         when(cartRepository.save(any(Cart.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -247,8 +283,9 @@ class CartItemServiceTest {
 
         cart.setItems(new HashSet<>(List.of(item)));
 
-        when(cartService.getCart(1L)).thenReturn(cart);
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
         when(productService.getProductById(10L)).thenReturn(product);
+        when(productService.getAvailableQuantity(10L)).thenReturn(2);
 
         var service = new CartItemService(cartService, productService, cartItemRepository, cartRepository);
 
@@ -278,7 +315,7 @@ class CartItemServiceTest {
 
         cart.setItems(new HashSet<>(List.of(item)));
 
-        when(cartService.getCart(1L)).thenReturn(cart);
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
 
         var service = new CartItemService(cartService, productService, cartItemRepository, cartRepository);
         var result = service.getCartItem(1L, 50L);
@@ -298,11 +335,77 @@ class CartItemServiceTest {
         cart.setId(1L);
         cart.setItems(new HashSet<>());
 
-        when(cartService.getCart(1L)).thenReturn(cart);
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
 
         var service = new CartItemService(cartService, productService, cartItemRepository, cartRepository);
 
         assertThrows(ResourceNotFoundException.class,
                 () -> service.getCartItem(1L, 999L));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should apply add, set and remove operations with a single product lookup")
+    void applyOperationsAppliesBatchWithOneProductLookup() {
+        var cartService = mock(ICartService.class);
+        var productService = mock(ProductService.class);
+        var cartItemRepository = mock(CartItemRepository.class);
+        var cartRepository = mock(CartRepository.class);
+
+        var kept = product(10L, 5.0, 10);
+        var added = product(20L, 2.5, 10);
+        var removed = product(30L, 1.0, 10);
+        var cart = new Cart();
+        cart.setId(1L);
+        cart.setItems(new HashSet<>(List.of(line(kept, 1), line(removed, 3))));
+
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
+        when(productService.getProductsByIds(Set.of(10L, 20L))).thenReturn(Map.of(10L, kept, 20L, added));
+        when(productService.getAvailableQuantities(Set.of(10L, 20L))).thenReturn(Map.of(10L, 10, 20L, 10));
+
+        var service = new CartItemService(cartService, productService, cartItemRepository, cartRepository);
+        var response = service.applyOperations(1L, List.of(
+                new CartItemOperationDTO(CartItemOperationDTO.Type.ADD, 10L, 2),
+                new CartItemOperationDTO(CartItemOperationDTO.Type.SET, 20L, 4),
+                new CartItemOperationDTO(CartItemOperationDTO.Type.REMOVE, 30L, 0),
+                new CartItemOperationDTO(CartItemOperationDTO.Type.REMOVE, 99L, 0)));
+
+        verify(productService).getProductsByIds(Set.of(10L, 20L));
+        verify(productService).getAvailableQuantities(Set.of(10L, 20L));
+        verifyNoMoreInteractions(productService);
+        verifyNoInteractions(cartItemRepository);
+        assertEquals(2, response.items().size());
+        assertEquals(3, cart.findItem(10L).getQuantity());
+        assertEquals(4, cart.findItem(20L).getQuantity());
+        assertNull(cart.findItem(30L));
+        assertEquals(25.0, response.totalAmount());
+    }
+
+    @Test
+    @DisplayName("Should reject a batch when an add would exceed the available stock")
+    void applyOperationsRejectsBatchExceedingStock() {
+        var cartService = mock(ICartService.class);
+        var productService = mock(ProductService.class);
+
+        var product = product(10L, 5.0, 3);
+        var cart = new Cart();
+        cart.setId(1L);
+        cart.setItems(new HashSet<>(List.of(line(product, 2))));
+
+        when(cartService.getCartForUpdate(1L)).thenReturn(cart);
+        when(productService.getProductsByIds(Set.of(10L))).thenReturn(Map.of(10L, product));
+        when(productService.getAvailableQuantities(Set.of(10L))).thenReturn(Map.of(10L, 3));
+
+        var service = new CartItemService(cartService, productService, mock(CartItemRepository.class), mock(CartRepository.class));
+
+        assertThrows(IllegalArgumentException.class, () -> service.applyOperations(1L, List.of(
+                new CartItemOperationDTO(CartItemOperationDTO.Type.ADD, 10L, 2))));
+    }
+
+    private static CartItem line(Product product, int quantity) {
+        var item = new CartItem();
+        item.setProduct(product);
+        item.setUnitPrice(product.getPrice());
+        item.setQuantity(quantity);
+        return item;
+    }
+}
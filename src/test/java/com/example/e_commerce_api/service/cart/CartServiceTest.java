@@ -6,16 +6,23 @@ import com.example.e_commerce_api.model.CartItem;
 import com.example.e_commerce_api.model.User;
 import com.example.e_commerce_api.repository.CartItemRepository;
 import com.example.e_commerce_api.repository.CartRepository;
+import com.example.e_commerce_api.repository.UserRepository;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 
 import java.util.HashSet;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 class CartServiceTest {
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
     @Test
     @DisplayName("Should return cart when cart exists")
     void getCartReturnsCartWhenCartExists() {
@@ -25,23 +32,48 @@ class CartServiceTest {
         var item = new CartItem();
         item.setUnitPrice(100.0);
         item.setQuantity(1);
-        cart.getItems().add(item);
+        cart.addItem(item);
         when(cartRepository.findById(1L)).thenReturn(Optional.of(cart));
         when(cartRepository.save(cart)).thenReturn(cart);
 
-        var cartService = new CartService(cartRepository, mock(CartItemRepository.class));
+        var cartService = new CartService(cartRepository, mock(CartItemRepository.class), mock(UserRepository.class), transactionManager);
         var result = cartService.getCart(1L);
         assertEquals(cart.getId(), result.getId());
         assertEquals(100.0, result.getTotalAmount());
     }
 
+    @Test
+    @DisplayName("Should build cart view with items, payments and owner id")
+    void getCartViewReturnsLoadedView() {
+        var cartRepository = mock(CartRepository.class);
+        var user = new User();
+        user.setId(7L);
+        var cart = new Cart(user);
+        cart.setId(1L);
+        var item = new CartItem();
+        item.setUnitPrice(10.0);
+        item.setQuantity(3);
+        cart.addItem(item);
+        when(cartRepository.findForViewById(1L)).thenReturn(Optional.of(cart));
+
+        var cartService = new CartService(cartRepository, mock(CartItemRepository.class), mock(UserRepository.class), transactionManager);
+        var result = cartService.getCartView(1L);
+
+        assertEquals(1L, result.id());
+        assertEquals(30.0, result.totalAmount());
+        assertEquals(1, result.items().size());
+        assertTrue(result.payments().isEmpty());
+        assertEquals(7L, result.user());
+        verify(transactionManager).getTransaction(argThat(TransactionDefinition::isReadOnly));
+    }
+
     @Test
     @DisplayName("Should throw exception when cart does not exist")
     void getCartThrowsExceptionWhenCartDoesNotExist() {
         var cartRepository = mock(CartRepository.class);
         when(cartRepository.findById(1L)).thenReturn(Optional.empty());
 
-        var cartService = new CartService(cartRepository, mock(CartItemRepository.class));
+        var cartService = new CartService(cartRepository, mock(CartItemRepository.class), mock(UserRepository.class), transactionManager);
 
         assertThrows(ResourceNotFoundException.class, () -> cartService.getCart(1L));
     }
@@ -56,10 +88,12 @@ class CartServiceTest {
         cart.setItems(new HashSet<>());
         when(cartRepository.findById(1L)).thenReturn(Optional.of(cart));
 
-        var cartService = new CartService(cartRepository, cartItemRepository);
+        var userRepository = mock(UserRepository.class);
+        var cartService = new CartService(cartRepository, cartItemRepository, userRepository, transactionManager);
         cartService.clearCart(1L);
         verify(cartItemRepository).deleteAllByCartId(1L);
         verify(cartRepository).deleteById(1L);
+        verify(userRepository).releaseActiveCart(1L);
         assertTrue(cart.getItems().isEmpty());
     }
 
@@ -72,14 +106,25 @@ class CartServiceTest {
         var item = new CartItem();
         item.setUnitPrice(100.0);
         item.setQuantity(2);
-        cart.getItems().add(item);
-        when(cartRepository.findById(1L)).thenReturn(Optional.of(cart));
-        when(cartRepository.save(cart)).thenReturn(cart);
+        cart.addItem(item);
+        when(cartRepository.findTotalAmountCentsById(1L)).thenReturn(Optional.of(cart.getTotalAmountCents()));
 
-        var cartService = new CartService(cartRepository, mock(CartItemRepository.class));
+        var cartService = new CartService(cartRepository, mock(CartItemRepository.class), mock(UserRepository.class), transactionManager);
         var result = cartService.getTotalPrice(1L);
 
         assertEquals(200.0, result);
+        verify(cartRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should report a missing cart when reading its total")
+    void getTotalPriceThrowsWhenCartDoesNotExist() {
+        var cartRepository = mock(CartRepository.class);
+        when(cartRepository.findTotalAmountCentsById(1L)).thenReturn(Optional.empty());
+
+        var cartService = new CartService(cartRepository, mock(CartItemRepository.class), mock(UserRepository.class), transactionManager);
+
+        assertThrows(ResourceNotFoundException.class, () -> cartService.getTotalPrice(1L));
     }
 
     @Test
@@ -90,11 +135,66 @@ class CartServiceTest {
         var cart = new Cart(user);
         when(cartRepository.save(org.mockito.Mockito.any(Cart.class))).thenReturn(cart);
 
-        var cartService = new CartService(cartRepository, mock(CartItemRepository.class));
+        var cartService = new CartService(cartRepository, mock(CartItemRepository.class), mock(UserRepository.class), transactionManager);
         var result = cartService.createCart(user);
 
         assertEquals(cart, result);
         assertEquals(user, result.getUser());
     }
 
-}
\ No newline at end of file
+    @Test
+    @DisplayName("Should resolve the active cart from the principal without querying")
+    void getActiveCartIdUsesPrincipalPointer() {
+        var cartRepository = mock(CartRepository.class);
+        var userRepository = mock(UserRepository.class);
+        var user = new User();
+        user.setId(7L);
+        user.setActiveCartId(3L);
+
+        var cartService = new CartService(cartRepository, mock(CartItemRepository.class), userRepository, transactionManager);
+
+        assertEquals(3L, cartService.getActiveCartId(user));
+        verifyNoInteractions(cartRepository, userRepository);
+    }
+
+    @Test
+    @DisplayName("Should create and claim an active cart on the first visit")
+    void getActiveCartIdCreatesAndClaimsCart() {
+        var cartRepository = mock(CartRepository.class);
+        var userRepository = mock(UserRepository.class);
+        var user = new User();
+        user.setId(7L);
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            Cart cart = invocation.getArgument(0);
+            cart.setId(5L);
+            return cart;
+        });
+        when(userRepository.claimActiveCart(7L, 5L)).thenReturn(1);
+
+        var cartService = new CartService(cartRepository, mock(CartItemRepository.class), userRepository, transactionManager);
+
+        assertEquals(5L, cartService.getActiveCartId(user));
+        verify(cartRepository, never()).delete(any());
+    }
+
+    @Test
+    @DisplayName("Should adopt the cart of a concurrent first visit that claimed the slot first")
+    void getActiveCartIdAdoptsConcurrentWinner() {
+        var cartRepository = mock(CartRepository.class);
+        var userRepository = mock(UserRepository.class);
+        var user = new User();
+        user.setId(7L);
+        when(cartRepository.save(any(Cart.class))).thenAnswer(invocation -> {
+            Cart cart = invocation.getArgument(0);
+            cart.setId(5L);
+            return cart;
+        });
+        when(userRepository.claimActiveCart(7L, 5L)).thenReturn(0);
+        when(userRepository.findActiveCartIdById(7L)).thenReturn(Optional.of(4L));
+
+        var cartService = new CartService(cartRepository, mock(CartItemRepository.class), userRepository, transactionManager);
+
+        assertEquals(4L, cartService.getActiveCartId(user));
+        verify(cartRepository).delete(argThat(cart -> cart.getId() == 5L));
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.e_commerce_api.service.cart;
+
+import com.example.e_commerce_api.dto.CartItemResponseDTO;
+import com.example.e_commerce_api.model.Cart;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.sql.SQLException;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RetryingCartItemServiceTest {
+
+    @Test
+    @DisplayName("Should retry a cart mutation that lost an optimistic locking race")
+    void retriesConflictingMutation() {
+        var delegate = mock(CartItemService.class);
+        var expected = new CartItemResponseDTO(1L, 10.0, Set.of());
+        when(delegate.addItemToCart(1L, 10L, 2))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Cart.class, 1L))
+                .thenThrow(duplicateLine())
+                .thenReturn(expected);
+
+        var service = new RetryingCartItemService(delegate);
+
+        assertSame(expected, service.addItemToCart(1L, 10L, 2));
+        verify(delegate, times(3)).addItemToCart(1L, 10L, 2);
+        var stats = service.getConflictStats();
+        assertEquals(2, stats.conflicts());
+        assertEquals(1, stats.recovered());
+        assertEquals(0, stats.exhausted());
+    }
+
+    @Test
+    @DisplayName("Should give up after the maximum number of attempts")
+    void givesUpAfterMaxAttempts() {
+        var delegate = mock(CartItemService.class);
+        when(delegate.updateItemQuantity(1L, 10L, 2)).thenThrow(new ObjectOptimisticLockingFailureException(Cart.class, 1L));
+
+        var service = new RetryingCartItemService(delegate);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> service.updateItemQuantity(1L, 10L, 2));
+        verify(delegate, times(RetryingCartItemService.MAX_ATTEMPTS)).updateItemQuantity(1L, 10L, 2);
+        assertEquals(RetryingCartItemService.MAX_ATTEMPTS, service.getConflictStats().conflicts());
+        assertEquals(1, service.getConflictStats().exhausted());
+    }
+
+    @Test
+    @DisplayName("Should not retry failures that are not conflicts")
+    void doesNotRetryOtherFailures() {
+        var delegate = mock(CartItemService.class);
+        when(delegate.addItemToCart(1L, 10L, 50)).thenThrow(new IllegalArgumentException("Not enough stock"));
+
+        var service = new RetryingCartItemService(delegate);
+
+        assertThrows(IllegalArgumentException.class, () -> service.addItemToCart(1L, 10L, 50));
+        verify(delegate, times(1)).addItemToCart(1L, 10L, 50);
+        assertEquals(0, service.getConflictStats().conflicts());
+    }
+
+    @Test
+    @DisplayName("Should rethrow integrity violations other than a duplicate product line without retrying")
+    void doesNotRetryOtherIntegrityViolations() {
+        var delegate = mock(CartItemService.class);
+        var missingProduct = new DataIntegrityViolationException("fk",
+                new ConstraintViolationException("fk", new SQLException(), "fk_cart_item_product"));
+        when(delegate.addItemToCart(1L, 99L, 1)).thenThrow(missingProduct);
+
+        var service = new RetryingCartItemService(delegate);
+
+        assertSame(missingProduct, assertThrows(DataIntegrityViolationException.class, () -> service.addItemToCart(1L, 99L, 1)));
+        verify(delegate, times(1)).addItemToCart(1L, 99L, 1);
+        assertEquals(0, service.getConflictStats().conflicts());
+    }
+
+    @Test
+    @DisplayName("Should tell a duplicate product line from a missing reference and other violations")
+    void classifiesIntegrityViolations() {
+        var missingProduct = new DataIntegrityViolationException("fk",
+                new ConstraintViolationException("fk", new SQLException("fk", "23503"), "fk_cart_item_product"));
+        var notNull = new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException("not null", "23502"), null));
+
+        assertTrue(RetryingCartItemService.isDuplicateLine(duplicateLine()));
+        assertFalse(RetryingCartItemService.isDuplicateLine(missingProduct));
+        assertTrue(RetryingCartItemService.isMissingReference(missingProduct));
+        assertFalse(RetryingCartItemService.isMissingReference(notNull));
+        assertFalse(RetryingCartItemService.isMissingReference(duplicateLine()));
+    }
+
+    private static DataIntegrityViolationException duplicateLine() {
+        return new DataIntegrityViolationException("duplicate line",
+                new ConstraintViolationException("duplicate", new SQLException(), "uk_cart_item_cart_product"));
+    }
+}
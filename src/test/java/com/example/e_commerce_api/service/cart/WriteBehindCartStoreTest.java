@@ -0,0 +1,158 @@
+package com.example.e_commerce_api.service.cart;
+
+import com.example.e_commerce_api.dto.CartItemOperationDTO;
+import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.repository.CartRepository;
+import com.example.e_commerce_api.service.ProductService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static com.example.e_commerce_api.model.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WriteBehindCartStoreTest {
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+
+    private final ProductService productService = mock(ProductService.class);
+
+    private final TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+    private final Product product = product(10L, 5.0, 100);
+
+    @Test
+    @DisplayName("Should absorb many edits in memory and write them in one flush")
+    @SuppressWarnings("unchecked")
+    void coalescesEditsIntoOneFlush() {
+        var persisted = new Cart();
+        persisted.setId(1L);
+        when(cartRepository.findForUpdateById(1L)).thenReturn(Optional.of(new Cart()), Optional.of(persisted));
+        when(productService.getProductsByIds(anyCollection())).thenReturn(Map.of(10L, product));
+        when(productService.getAvailableQuantities(anyCollection())).thenReturn(Map.of(10L, 100));
+        runTransactions();
+        var store = store(10);
+
+        store.tryApply(1L, List.of(op(CartItemOperationDTO.Type.ADD, 2)));
+        store.tryApply(1L, List.of(op(CartItemOperationDTO.Type.ADD, 3)));
+        var response = store.tryApply(1L, List.of(op(CartItemOperationDTO.Type.SET, 4))).orElseThrow();
+
+        assertEquals(20.0, response.totalAmount());
+        verify(transactionTemplate, never()).executeWithoutResult(any());
+
+        store.flushAll();
+
+        verify(transactionTemplate, times(1)).executeWithoutResult(any());
+        assertEquals(4, persisted.findItem(10L).getQuantity());
+        assertEquals(20.0, persisted.getTotalAmount());
+        var stats = store.getStats();
+        assertEquals(3, stats.bufferedEdits());
+        assertEquals(1, stats.flushes());
+        assertEquals(1, stats.flushedLines());
+        assertEquals(0, stats.activeCarts());
+        assertTrue(store.snapshot(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should keep a batch that lost a version race for the next flush")
+    @SuppressWarnings("unchecked")
+    void keepsBatchAfterConflict() {
+        var persisted = new Cart();
+        when(cartRepository.findForUpdateById(1L)).thenReturn(Optional.of(new Cart()), Optional.of(persisted));
+        when(productService.getProductsByIds(anyCollection())).thenReturn(Map.of(10L, product));
+        when(productService.getAvailableQuantities(anyCollection())).thenReturn(Map.of(10L, 100));
+        doThrow(new ObjectOptimisticLockingFailureException(Cart.class, 1L))
+                .doAnswer(invocation -> {
+                    invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+                    return null;
+                })
+                .when(transactionTemplate).executeWithoutResult(any());
+        var store = store(10);
+        store.tryApply(1L, List.of(op(CartItemOperationDTO.Type.ADD, 2)));
+
+        store.flush(1L);
+
+        verify(transactionTemplate, times(2)).executeWithoutResult(any());
+        assertEquals(2, persisted.findItem(10L).getQuantity());
+    }
+
+    @Test
+    @DisplayName("Should drop buffered edits the database refuses")
+    @SuppressWarnings("unchecked")
+    void dropsRejectedEdits() {
+        when(cartRepository.findForUpdateById(1L)).thenReturn(Optional.of(new Cart()), Optional.of(new Cart()));
+        when(productService.getProductsByIds(anyCollection())).thenReturn(Map.of(10L, product));
+        when(productService.getAvailableQuantities(anyCollection())).thenReturn(Map.of(10L, 100), Map.of(10L, 1));
+        runTransactions();
+        var store = store(10);
+        store.tryApply(1L, List.of(op(CartItemOperationDTO.Type.ADD, 2)));
+
+        store.flush(1L);
+
+        assertEquals(1, store.getStats().rejectedFlushes());
+        assertTrue(store.snapshot(1L).isEmpty());
+        assertEquals("Not enough stock for product with id 10", store.rejection(1L).orElseThrow());
+
+        // the next edit shows the client the real cart, so the rejection is reported only until then
+        store.tryApply(1L, List.of(op(CartItemOperationDTO.Type.ADD, 1)));
+        assertTrue(store.rejection(1L).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should hand out detached copies that later edits never change")
+    void responsesAreDetachedCopies() {
+        when(cartRepository.findForUpdateById(1L)).thenReturn(Optional.of(new Cart()));
+        when(productService.getProductsByIds(anyCollection())).thenReturn(Map.of(10L, product));
+        when(productService.getAvailableQuantities(anyCollection())).thenReturn(Map.of(10L, 100));
+        var store = store(10);
+
+        var first = store.tryApply(1L, List.of(op(CartItemOperationDTO.Type.ADD, 2))).orElseThrow();
+        store.findItem(1L, 10L).orElseThrow().setQuantity(50);
+        store.tryApply(1L, List.of(op(CartItemOperationDTO.Type.SET, 3)));
+
+        assertEquals(2, first.items().iterator().next().getQuantity());
+        assertEquals(10.0, first.totalAmount());
+        assertEquals(3, store.findItem(1L, 10L).orElseThrow().getQuantity());
+        assertEquals(15.0, store.snapshot(1L).orElseThrow().totalAmount());
+    }
+
+    @Test
+    @DisplayName("Should leave the edit to the database when the store is full")
+    void writesThroughWhenFull() {
+        when(productService.getProductsByIds(anyCollection())).thenReturn(Map.of(10L, product));
+        when(productService.getAvailableQuantities(anyCollection())).thenReturn(Map.of(10L, 100));
+        var store = store(0);
+
+        assertTrue(store.tryApply(1L, List.of(op(CartItemOperationDTO.Type.ADD, 2))).isEmpty());
+        assertEquals(1, store.getStats().writeThroughs());
+        verifyNoInteractions(cartRepository);
+    }
+
+    private WriteBehindCartStore store(int maxCarts) {
+        var store = new WriteBehindCartStore(cartRepository, productService, transactionTemplate);
+        ReflectionTestUtils.setField(store, "maxCarts", maxCarts);
+        return store;
+    }
+
+    private void runTransactions() {
+        doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+    }
+
+    private static CartItemOperationDTO op(CartItemOperationDTO.Type type, int quantity) {
+        return new CartItemOperationDTO(type, 10L, quantity);
+    }
+}
@@ -0,0 +1,229 @@
+package com.example.e_commerce_api.service.inventory;
+
+import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.repository.ProductRepository;
+import com.example.e_commerce_api.service.ProductService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// the ledger only means something once transactions really commit, so the tests run outside the test transaction
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FlashSaleStockServiceTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private TransactionTemplate transactionTemplate;
+
+    private FlashSaleStockService service;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        service = service();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM flash_sale_ledger");
+        jdbcTemplate.update("DELETE FROM flash_sale_lease");
+        productRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Should report products that are not on flash sale as not managed")
+    void tryReserveIgnoresUnmanagedProducts() {
+        assertEquals(FlashSaleStockService.Outcome.NOT_MANAGED, service.tryReserve(1L, 1));
+        assertFalse(service.release(1L, 1));
+    }
+
+    @Test
+    @DisplayName("Should record every reservation in the ledger and fold the net amount into the product")
+    void writeBackFoldsTheLedgerIntoTheProduct() {
+        var id = flashSaleProduct(10);
+
+        assertEquals(FlashSaleStockService.Outcome.RESERVED, service.tryReserve(id, 4));
+        assertEquals(FlashSaleStockService.Outcome.REJECTED, service.tryReserve(id, 7));
+        assertTrue(service.release(id, 1));
+        assertEquals(3, service.getStocks().get(0).pendingWriteBack());
+
+        service.writeBack();
+
+        assertEquals(7, quantityOf(id));
+        assertEquals(0, service.getStocks().get(0).pendingWriteBack());
+        assertEquals(7, service.getStocks().get(0).available());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM flash_sale_ledger", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Should drop the ledger row and hand the units back when the checkout rolls back")
+    void rolledBackReservationLeavesNoTrace() {
+        var id = flashSaleProduct(5);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(FlashSaleStockService.Outcome.RESERVED, service.tryReserve(id, 5));
+            status.setRollbackOnly();
+        });
+
+        assertEquals(5, service.getStocks().get(0).available());
+        assertEquals(0, service.getStocks().get(0).pendingWriteBack());
+    }
+
+    @Test
+    @DisplayName("Should rebuild the counters from the product minus the unfolded ledger after a restart")
+    void restoreReplaysTheLedger() {
+        var id = flashSaleProduct(10);
+        service.tryReserve(id, 6);
+
+        // the crashed instance never released its lease; the replacement takes over once it lapses
+        var restarted = service();
+        restarted.restore();
+        assertTrue(restarted.getStocks().isEmpty());
+        jdbcTemplate.update("UPDATE flash_sale_lease SET expires_at = ?", Timestamp.from(Instant.now().minusSeconds(1)));
+        restarted.syncOwnership();
+
+        assertEquals(4, restarted.getStocks().get(0).available());
+        assertEquals(FlashSaleStockService.Outcome.REJECTED, restarted.tryReserve(id, 5));
+    }
+
+    @Test
+    @DisplayName("Should fold pending reservations before handing the product back to the database path")
+    void disableFoldsTheLedger() {
+        var id = flashSaleProduct(10);
+        service.tryReserve(id, 3);
+
+        service.disable(id);
+
+        assertEquals(7, quantityOf(id));
+        assertFalse(jdbcTemplate.queryForObject("SELECT flash_sale FROM product WHERE id = ?", Boolean.class, id));
+        assertEquals(FlashSaleStockService.Outcome.NOT_MANAGED, service.tryReserve(id, 1));
+    }
+
+    @Test
+    @DisplayName("Should surface an oversell as a negative quantity instead of clamping it away")
+    void writeBackDoesNotClampAtZero() {
+        var id = flashSaleProduct(2);
+        service.tryReserve(id, 2);
+        jdbcTemplate.update("UPDATE product SET quantity = 1 WHERE id = ?", id);
+
+        service.writeBack();
+
+        assertEquals(-1, quantityOf(id));
+    }
+
+    @Test
+    @DisplayName("Should move the counters with a direct quantity change once it commits")
+    void restockFollowsCommittedChanges() {
+        var id = flashSaleProduct(10);
+
+        service.restock(id, 5);
+        assertEquals(15, service.getStocks().get(0).available());
+        transactionTemplate.executeWithoutResult(status -> {
+            service.restock(id, -20);
+            status.setRollbackOnly();
+        });
+        assertEquals(15, service.getStocks().get(0).available());
+        service.restock(id, -20);
+        assertEquals(0, service.getStocks().get(0).available());
+    }
+
+    @Test
+    @DisplayName("Should leave flash-sale stock to the instance holding the lease")
+    void onlyTheLeaseHolderSellsFromCounters() {
+        var id = flashSaleProduct(10);
+        var other = service();
+
+        other.restore();
+
+        assertEquals(FlashSaleStockService.Outcome.NOT_MANAGED, other.tryReserve(id, 1));
+        assertThrows(IllegalStateException.class, () -> other.enable(id));
+        assertThrows(IllegalStateException.class, () -> other.disable(id));
+        assertTrue(jdbcTemplate.queryForObject("SELECT flash_sale FROM product WHERE id = ?", Boolean.class, id));
+    }
+
+    @Test
+    @DisplayName("Should refuse to end a flash sale while a reservation is still in flight, and keep selling")
+    void disableGivesUpWhileReservationsAreInFlight() throws Exception {
+        var id = flashSaleProduct(10);
+        var reserved = new CountDownLatch(1);
+        var finish = new CountDownLatch(1);
+        var checkout = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+            service.tryReserve(id, 2);
+            reserved.countDown();
+            try {
+                finish.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        reserved.await();
+
+        assertThrows(IllegalStateException.class, () -> service.disable(id));
+        finish.countDown();
+        checkout.join();
+
+        assertTrue(jdbcTemplate.queryForObject("SELECT flash_sale FROM product WHERE id = ?", Boolean.class, id));
+        assertEquals(FlashSaleStockService.Outcome.RESERVED, service.tryReserve(id, 1));
+        assertEquals(7, service.getStocks().get(0).available());
+    }
+
+    @Test
+    @DisplayName("Should stop selling a deleted product from its counters")
+    void forgetDropsTheCounters() {
+        var id = flashSaleProduct(10);
+
+        service.forget(id);
+
+        assertEquals(FlashSaleStockService.Outcome.NOT_MANAGED, service.tryReserve(id, 1));
+        assertTrue(service.getStocks().isEmpty());
+    }
+
+    private FlashSaleStockService service() {
+        var ownership = new FlashSaleOwnership(jdbcTemplate);
+        ReflectionTestUtils.setField(ownership, "leaseMs", 30000L);
+        return new FlashSaleStockService(jdbcTemplate, transactionTemplate, ownership, mockProductService());
+    }
+
+    private Long flashSaleProduct(int quantity) {
+        var id = productRepository.save(new Product("Phone", null, 100.0, quantity)).getId();
+        service.enable(id);
+        return id;
+    }
+
+    private int quantityOf(Long id) {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ObjectProvider<ProductService> mockProductService() {
+        ObjectProvider<ProductService> productService = mock(ObjectProvider.class);
+        when(productService.getObject()).thenReturn(mock(ProductService.class));
+        return productService;
+    }
+}
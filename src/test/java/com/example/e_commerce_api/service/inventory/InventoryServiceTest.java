@@ -0,0 +1,135 @@
+package com.example.e_commerce_api.service.inventory;
+
+import com.example.e_commerce_api.exception.InsufficientStockException;
+import com.example.e_commerce_api.service.ProductService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InventoryServiceTest {
+
+    @Test
+    @DisplayName("Should decrement all lines in one batch ordered by product id")
+    @SuppressWarnings("unchecked")
+    void reserveBatchesConditionalUpdatesInProductOrder() {
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        var productService = mock(ProductService.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1, 1}});
+
+        new InventoryService(jdbcTemplate, productService, noFlashSales()).reserve(Map.of(9L, 1, 3L, 2));
+
+        var lines = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(eq("UPDATE product SET quantity = quantity - ? WHERE id = ? AND quantity >= ? AND flash_sale = false"),
+                lines.capture(), eq(2), any(ParameterizedPreparedStatementSetter.class));
+        var productIds = new ArrayList<Long>();
+        for (Object line : lines.getValue()) {
+            productIds.add(((Map.Entry<Long, Integer>) line).getKey());
+        }
+        assertEquals(List.of(3L, 9L), productIds);
+        verify(productService).evictFromCache(List.of(3L, 9L));
+    }
+
+    @Test
+    @DisplayName("Should fail with the short products when any conditional update matches no row")
+    @SuppressWarnings("unchecked")
+    void reserveThrowsWhenAnyLineIsShort() {
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        var productService = mock(ProductService.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1, 0, 0}});
+
+        var exception = assertThrows(InsufficientStockException.class,
+                () -> new InventoryService(jdbcTemplate, productService, noFlashSales()).reserve(Map.of(1L, 1, 2L, 5, 3L, 5)));
+
+        assertEquals(List.of(2L, 3L), exception.getProductIds());
+        verifyNoInteractions(productService);
+    }
+
+    @Test
+    @DisplayName("Should reject zero and negative quantities before touching any stock")
+    void reserveRejectsNonPositiveQuantities() {
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        var flashSales = noFlashSales();
+        var service = new InventoryService(jdbcTemplate, mock(ProductService.class), flashSales);
+
+        assertThrows(IllegalArgumentException.class, () -> service.reserve(Map.of(1L, 2, 2L, -3)));
+        assertThrows(IllegalArgumentException.class, () -> service.reserve(Map.of(1L, 0)));
+        assertThrows(IllegalArgumentException.class, () -> service.release(Map.of(1L, -1)));
+        verifyNoInteractions(jdbcTemplate, flashSales);
+    }
+
+    @Test
+    @DisplayName("Should not touch the database for an empty reservation")
+    void reserveIgnoresEmptyReservation() {
+        var jdbcTemplate = mock(JdbcTemplate.class);
+
+        new InventoryService(jdbcTemplate, mock(ProductService.class), noFlashSales()).reserve(Map.of());
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Should take flash-sale lines from the in-memory counters and only send the rest to the database")
+    @SuppressWarnings("unchecked")
+    void reserveRoutesFlashSaleLinesToCounters() {
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        var flashSales = mock(FlashSaleStockService.class);
+        when(flashSales.tryReserve(1L, 2)).thenReturn(FlashSaleStockService.Outcome.RESERVED);
+        when(flashSales.tryReserve(5L, 1)).thenReturn(FlashSaleStockService.Outcome.NOT_MANAGED);
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1}});
+
+        new InventoryService(jdbcTemplate, mock(ProductService.class), flashSales).reserve(Map.of(1L, 2, 5L, 1));
+
+        var lines = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), lines.capture(), eq(1), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(5L, ((Map.Entry<Long, Integer>) lines.getValue().iterator().next()).getKey());
+        verify(flashSales, never()).release(anyLong(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should hand back counter reservations when a flash-sale line is sold out")
+    void reserveReleasesCountersWhenAFlashSaleLineIsRejected() {
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        var flashSales = mock(FlashSaleStockService.class);
+        when(flashSales.tryReserve(1L, 2)).thenReturn(FlashSaleStockService.Outcome.RESERVED);
+        when(flashSales.tryReserve(2L, 3)).thenReturn(FlashSaleStockService.Outcome.REJECTED);
+
+        var exception = assertThrows(InsufficientStockException.class,
+                () -> new InventoryService(jdbcTemplate, mock(ProductService.class), flashSales).reserve(Map.of(1L, 2, 2L, 3)));
+
+        assertEquals(List.of(2L), exception.getProductIds());
+        verify(flashSales).release(1L, 2);
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    @DisplayName("Should return released flash-sale stock to the counters instead of the database")
+    void releaseRoutesFlashSaleLinesToCounters() {
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        var flashSales = mock(FlashSaleStockService.class);
+        when(flashSales.release(1L, 2)).thenReturn(true);
+
+        new InventoryService(jdbcTemplate, mock(ProductService.class), flashSales).release(Map.of(1L, 2));
+
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    private static FlashSaleStockService noFlashSales() {
+        var flashSales = mock(FlashSaleStockService.class);
+        when(flashSales.tryReserve(anyLong(), anyInt())).thenReturn(FlashSaleStockService.Outcome.NOT_MANAGED);
+        return flashSales;
+    }
+}
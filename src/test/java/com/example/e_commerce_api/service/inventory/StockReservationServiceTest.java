@@ -0,0 +1,115 @@
+package com.example.e_commerce_api.service.inventory;
+
+import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.Payment;
+import com.example.e_commerce_api.model.StockReservation;
+import com.example.e_commerce_api.repository.PaymentRepository;
+import com.example.e_commerce_api.repository.StockReservationRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockReservationServiceTest {
+
+    @Test
+    @DisplayName("Should reserve stock and record one reservation per product against a pending payment")
+    @SuppressWarnings("unchecked")
+    void reserveRecordsReservationsForPendingPayment() {
+        var inventoryService = mock(InventoryService.class);
+        var paymentRepository = mock(PaymentRepository.class);
+        var reservationRepository = mock(StockReservationRepository.class);
+        when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        var service = new StockReservationService(inventoryService, paymentRepository, reservationRepository,
+                mock(JdbcTemplate.class), mock(TransactionTemplate.class));
+        var cart = new Cart();
+
+        var payment = service.reserve(cart, Map.of(1L, 2, 4L, 1), 500L);
+
+        verify(inventoryService).reserve(Map.of(1L, 2, 4L, 1));
+        assertEquals("PENDING", payment.getStatus());
+        assertSame(cart, payment.getCart());
+        var captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(reservationRepository).saveAll(captor.capture());
+        var reservations = new ArrayList<StockReservation>();
+        captor.getValue().forEach(reservation -> reservations.add((StockReservation) reservation));
+        assertEquals(2, reservations.size());
+        assertTrue(reservations.stream().allMatch(reservation -> reservation.getPayment() == payment
+                && reservation.getExpiresAt().equals(payment.getExpiresAt())));
+    }
+
+    @Test
+    @DisplayName("Should release expired reservations in bulk and leave confirmed payments' stock alone")
+    @SuppressWarnings("unchecked")
+    void releaseExpiredReturnsStockOnlyForOpenPayments() {
+        var inventoryService = mock(InventoryService.class);
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        var transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<Integer>) invocation.getArgument(0)).doInTransaction(null));
+        var service = new StockReservationService(inventoryService, mock(PaymentRepository.class),
+                mock(StockReservationRepository.class), jdbcTemplate, transactionTemplate);
+        stubReservations(jdbcTemplate, List.of(
+                new Object[]{1L, 10L, 7L, 2},
+                new Object[]{2L, 10L, 8L, 1},
+                new Object[]{3L, 11L, 7L, 5}));
+        // the delete for reservation 2 lost a race with another sweeper; payment 11 was confirmed meanwhile
+        when(jdbcTemplate.batchUpdate(startsWith("DELETE"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1, 0, 1}});
+        when(jdbcTemplate.batchUpdate(startsWith("UPDATE payment"), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1, 0}});
+
+        assertEquals(3, service.releaseExpired());
+
+        verify(inventoryService).release(Map.of(7L, 2));
+        verify(transactionTemplate, times(1)).execute(any());
+    }
+
+    @Test
+    @DisplayName("Should not touch stock when nothing has expired")
+    void releaseExpiredIsNoOpWithoutExpiredReservations() {
+        var inventoryService = mock(InventoryService.class);
+        var jdbcTemplate = mock(JdbcTemplate.class);
+        var transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(null));
+        var service = new StockReservationService(inventoryService, mock(PaymentRepository.class),
+                mock(StockReservationRepository.class), jdbcTemplate, transactionTemplate);
+        stubReservations(jdbcTemplate, List.of());
+
+        assertEquals(0, service.releaseExpired());
+
+        verifyNoInteractions(inventoryService);
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void stubReservations(JdbcTemplate jdbcTemplate, List<Object[]> rows) {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(), any())).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            var mapped = new ArrayList<>();
+            for (Object[] row : rows) {
+                var rs = mock(ResultSet.class);
+                when(rs.getLong("id")).thenReturn((Long) row[0]);
+                when(rs.getLong("payment_id")).thenReturn((Long) row[1]);
+                when(rs.getLong("product_id")).thenReturn((Long) row[2]);
+                when(rs.getInt("quantity")).thenReturn((Integer) row[3]);
+                mapped.add(mapper.mapRow(rs, mapped.size()));
+            }
+            return mapped;
+        });
+    }
+}
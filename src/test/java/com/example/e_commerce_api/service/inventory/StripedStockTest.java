@@ -0,0 +1,77 @@
+package com.example.e_commerce_api.service.inventory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StripedStockTest {
+
+    @Test
+    @DisplayName("Should never oversell when many threads reserve the same flash-sale product")
+    void concurrentReservationsNeverOversell() throws Exception {
+        var stock = new StripedStock(8, 100);
+        var sold = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(16);
+        try {
+            for (int i = 0; i < 16; i++) {
+                executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < 50; j++) {
+                        if (stock.tryTake(1)) {
+                            sold.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        assertEquals(100, sold.get());
+        assertEquals(0, stock.available());
+    }
+
+    @Test
+    @DisplayName("Should gather a line across stripes and undo a partial take when the total is short")
+    void takeSpansStripesAndRollsBackWhenShort() {
+        var stock = new StripedStock(4, 10);
+
+        assertTrue(stock.tryTake(7));
+        assertFalse(stock.tryTake(4));
+        assertEquals(3, stock.available());
+    }
+
+    @Test
+    @DisplayName("Should take what is left when a restock lowers stock below what is available")
+    void takeUpToStopsAtZero() {
+        var stock = new StripedStock(4, 5);
+
+        stock.takeUpTo(3);
+        assertEquals(2, stock.available());
+        stock.takeUpTo(10);
+        assertEquals(0, stock.available());
+    }
+
+    @Test
+    @DisplayName("Should refuse new entries once closed and report idle only after entered callers exit")
+    void closeWaitsForEnteredCallers() {
+        var stock = new StripedStock(2, 5);
+
+        assertTrue(stock.enter());
+        stock.close();
+        assertFalse(stock.enter());
+        assertFalse(stock.awaitIdle(20, TimeUnit.MILLISECONDS));
+        stock.exit();
+        assertTrue(stock.awaitIdle(20, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.e_commerce_api.service.payment;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@Import(CheckoutIdempotencyStore.class)
+class CheckoutIdempotencyStoreTest {
+
+    @Autowired
+    private CheckoutIdempotencyStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Should let only one request claim a key and replay its session afterwards")
+    void claimIsExclusiveAndCompletedKeyReplays() {
+        assertTrue(store.claim("key-1", 1L));
+        assertFalse(store.claim("key-1", 1L));
+        assertTrue(store.find("key-1", 1L).isEmpty());
+
+        store.complete("key-1", 1L, new CheckoutSession("cs_1", "https://checkout/cs_1"));
+
+        assertEquals("cs_1", store.find("key-1", 1L).orElseThrow().id());
+        assertThrows(IllegalArgumentException.class, () -> store.find("key-1", 2L));
+        store.release("key-1");
+        assertFalse(store.claim("key-1", 1L));
+    }
+
+    @Test
+    @DisplayName("Should free a failed claim and let an abandoned one be taken over")
+    void releasedAndAbandonedClaimsCanBeClaimedAgain() {
+        assertTrue(store.claim("key-1", 1L));
+        store.release("key-1");
+        assertTrue(store.claim("key-1", 1L));
+
+        jdbcTemplate.update("UPDATE idempotency_key SET expires_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP) WHERE idempotency_key = 'key-1'");
+        assertTrue(store.claim("key-1", 1L));
+    }
+
+    @Test
+    @DisplayName("Should record only the session of the claim that still holds the key")
+    void completeIsTiedToTheCurrentClaim() {
+        assertTrue(store.claim("key-2", 1L));
+        jdbcTemplate.update("UPDATE idempotency_key SET expires_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP) WHERE idempotency_key = 'key-2'");
+        assertTrue(store.claim("key-2", 2L));
+
+        assertFalse(store.complete("key-2", 1L, new CheckoutSession("cs_slow", "https://checkout/cs_slow")));
+        assertTrue(store.find("key-2", 2L).isEmpty());
+        assertTrue(store.complete("key-2", 2L, new CheckoutSession("cs_2", "https://checkout/cs_2")));
+        assertFalse(store.complete("key-2", 2L, new CheckoutSession("cs_late", "https://checkout/cs_late")));
+
+        assertEquals("cs_2", store.find("key-2", 2L).orElseThrow().id());
+        assertEquals("cs_2", jdbcTemplate.queryForObject("SELECT session_id FROM idempotency_key WHERE idempotency_key = 'key-2'", String.class));
+    }
+
+    @Test
+    @DisplayName("Should sweep expired keys in chunks")
+    void deleteExpiredRemovesOnlyExpiredKeys() {
+        store.claim("old", 1L);
+        store.claim("fresh", 1L);
+        jdbcTemplate.update("UPDATE idempotency_key SET expires_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP) WHERE idempotency_key = 'old'");
+
+        assertEquals(1, store.deleteExpired());
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM idempotency_key", Integer.class));
+    }
+}
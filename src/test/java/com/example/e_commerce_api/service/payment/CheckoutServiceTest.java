@@ -0,0 +1,233 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.exception.PaymentGatewayException;
+import com.example.e_commerce_api.exception.PaymentGatewayUnavailableException;
+import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.CartItem;
+import com.example.e_commerce_api.model.Payment;
+import com.example.e_commerce_api.model.Product;
+import com.example.e_commerce_api.service.PaymentService;
+import com.example.e_commerce_api.service.cart.ICartService;
+import com.example.e_commerce_api.service.inventory.StockReservationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CheckoutServiceTest {
+
+    private final ICartService cartService = mock(ICartService.class);
+
+    private final StockReservationService stockReservationService = mock(StockReservationService.class);
+
+    private final PaymentService paymentService = mock(PaymentService.class);
+
+    private final PaymentGateway paymentGateway = mock(PaymentGateway.class);
+
+    private final CheckoutIdempotencyStore idempotencyStore = mock(CheckoutIdempotencyStore.class);
+
+    private final Payment payment = Payment.builder().id(9L).status("PENDING").expiresAt(Instant.now().plusSeconds(2400)).build();
+
+    private CheckoutService service;
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    @DisplayName("Should reserve stock, open a gateway session off the caller's thread and attach it to the payment")
+    void checkoutAttachesSession() {
+        stubCart();
+        var callerThread = Thread.currentThread();
+        when(paymentGateway.createCheckoutSession(any())).thenAnswer(invocation -> {
+            assertNotSame(callerThread, Thread.currentThread());
+            CheckoutRequest request = invocation.getArgument(0);
+            assertEquals(9L, request.paymentId());
+            assertEquals(1, request.lineItems().size());
+            assertEquals(1250L, request.lineItems().get(0).unitAmountCents());
+            return new CheckoutSession("cs_1", "https://checkout/cs_1");
+        });
+        service = service(1000);
+
+        var session = service.checkout(1L).join();
+
+        assertEquals("cs_1", session.id());
+        verify(stockReservationService).reserve(any(Cart.class), eq(Map.of(10L, 2)), eq(2500L));
+        verify(paymentService).attachSession(payment, "cs_1", "https://checkout/cs_1");
+        verify(stockReservationService, never()).cancel(any());
+    }
+
+    @Test
+    @DisplayName("Should give the stock back when the gateway refuses the session")
+    void checkoutCancelsOnGatewayFailure() {
+        stubCart();
+        when(paymentGateway.createCheckoutSession(any())).thenThrow(new PaymentGatewayException("declined"));
+        service = service(1000);
+
+        var failure = assertThrows(CompletionException.class, () -> service.checkout(1L).join());
+
+        assertInstanceOf(PaymentGatewayException.class, failure.getCause());
+        verify(stockReservationService, timeout(1000)).cancel(9L);
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    @DisplayName("Should expire the new session when the reservation was released before it could be attached")
+    void checkoutExpiresSessionWhenPaymentIsNoLongerPending() {
+        stubCart();
+        when(paymentGateway.createCheckoutSession(any())).thenReturn(new CheckoutSession("cs_1", "https://checkout/cs_1"));
+        when(paymentService.attachSession(payment, "cs_1", "https://checkout/cs_1")).thenReturn(false);
+        service = service(1000);
+
+        var failure = assertThrows(CompletionException.class, () -> service.checkout(1L).join());
+
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        verify(paymentGateway).expireCheckoutSession("cs_1");
+        verify(stockReservationService, timeout(1000)).cancel(9L);
+    }
+
+    @Test
+    @DisplayName("Should time out a slow gateway and never attach its late session")
+    void checkoutTimesOutSlowGateway() throws Exception {
+        stubCart();
+        var release = new CountDownLatch(1);
+        when(paymentGateway.createCheckoutSession(any())).thenAnswer(invocation -> {
+            release.await();
+            return new CheckoutSession("cs_late", "https://checkout/cs_late");
+        });
+        service = service(50);
+
+        var failure = assertThrows(CompletionException.class, () -> service.checkout(1L).join());
+        release.countDown();
+
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        verify(stockReservationService, timeout(1000)).cancel(9L);
+        Thread.sleep(100);
+        verifyNoInteractions(paymentService);
+    }
+
+    @Test
+    @DisplayName("Should answer a retried checkout from the idempotency store without reserving stock again")
+    void checkoutReplaysCompletedKey() {
+        when(idempotencyStore.find("key-1", 1L)).thenReturn(Optional.of(new CheckoutSession("cs_1", "https://checkout/cs_1")));
+        service = service(1000);
+
+        var session = service.checkout(1L, "key-1").join();
+
+        assertEquals("cs_1", session.id());
+        verifyNoInteractions(cartService, stockReservationService, paymentGateway);
+        verify(idempotencyStore, never()).claim(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should record the session under the key once the first checkout succeeds")
+    void checkoutRecordsKeyOnSuccess() {
+        stubCart();
+        when(idempotencyStore.find("key-1", 1L)).thenReturn(Optional.empty());
+        when(idempotencyStore.claim("key-1", 1L)).thenReturn(true);
+        when(paymentGateway.createCheckoutSession(any())).thenReturn(new CheckoutSession("cs_1", "https://checkout/cs_1"));
+        service = service(1000);
+
+        var session = service.checkout(1L, "key-1").join();
+
+        verify(idempotencyStore).complete("key-1", 1L, session);
+        verify(idempotencyStore, never()).release(any());
+    }
+
+    @Test
+    @DisplayName("Should free the key when the first checkout fails so a retry can run")
+    void checkoutReleasesKeyOnFailure() {
+        stubCart();
+        when(idempotencyStore.find("key-1", 1L)).thenReturn(Optional.empty());
+        when(idempotencyStore.claim("key-1", 1L)).thenReturn(true);
+        when(paymentGateway.createCheckoutSession(any())).thenThrow(new PaymentGatewayException("declined"));
+        service = service(1000);
+
+        assertThrows(CompletionException.class, () -> service.checkout(1L, "key-1").join());
+
+        verify(idempotencyStore).release("key-1");
+        verify(idempotencyStore, never()).complete(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject a key still in flight when it is reused for another cart")
+    void checkoutRejectsInFlightKeyForAnotherCart() {
+        stubCart();
+        var release = new CountDownLatch(1);
+        when(idempotencyStore.find("key-1", 1L)).thenReturn(Optional.empty());
+        when(idempotencyStore.claim("key-1", 1L)).thenReturn(true);
+        when(paymentGateway.createCheckoutSession(any())).thenAnswer(invocation -> {
+            release.await();
+            return new CheckoutSession("cs_1", "https://checkout/cs_1");
+        });
+        service = service(1000);
+
+        var first = service.checkout(1L, "key-1");
+
+        assertThrows(IllegalArgumentException.class, () -> service.checkout(2L, "key-1"));
+        assertSame(first, service.checkout(1L, "key-1"));
+        release.countDown();
+        assertEquals("cs_1", first.join().id());
+        verify(idempotencyStore, never()).find("key-1", 2L);
+    }
+
+    @Test
+    @DisplayName("Should refuse a duplicate while another instance still holds the key")
+    void checkoutRefusesKeyInProgress() {
+        when(idempotencyStore.find("key-1", 1L)).thenReturn(Optional.empty());
+        when(idempotencyStore.claim("key-1", 1L)).thenReturn(false);
+        service = service(1000);
+
+        assertThrows(IllegalStateException.class, () -> service.checkout(1L, "key-1"));
+        verifyNoInteractions(cartService, stockReservationService, paymentGateway);
+    }
+
+    @Test
+    @DisplayName("Should fail fast without reserving stock while the gateway is unavailable")
+    void checkoutFailsFastWhenGatewayUnavailable() {
+        when(paymentGateway.isAvailable()).thenReturn(false);
+        service = service(1000);
+
+        assertThrows(PaymentGatewayUnavailableException.class, () -> service.checkout(1L));
+        verifyNoInteractions(cartService, stockReservationService);
+        verify(paymentGateway, never()).createCheckoutSession(any());
+    }
+
+    private void stubCart() {
+        var product = new Product();
+        product.setId(10L);
+        product.setName("Keyboard");
+        var item = new CartItem();
+        item.setProduct(product);
+        item.setUnitPrice(12.5);
+        item.setQuantity(2);
+        var cart = new Cart();
+        cart.setId(1L);
+        cart.addItem(item);
+        when(cartService.getCartForCheckout(1L)).thenReturn(cart);
+        when(stockReservationService.reserve(any(), any(), any())).thenReturn(payment);
+        when(paymentGateway.isAvailable()).thenReturn(true);
+        when(paymentService.attachSession(eq(payment), any(), any())).thenReturn(true);
+    }
+
+    private CheckoutService service(long timeoutMs) {
+        var checkoutService = new CheckoutService(cartService, stockReservationService, paymentService, paymentGateway, idempotencyStore);
+        ReflectionTestUtils.setField(checkoutService, "timeoutMs", timeoutMs);
+        ReflectionTestUtils.setField(checkoutService, "threads", 2);
+        ReflectionTestUtils.setField(checkoutService, "queueCapacity", 4);
+        checkoutService.start();
+        return checkoutService;
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.exception.PaymentGatewayException;
+import com.example.e_commerce_api.model.Payment;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@Import(PaymentReconciliationJob.class)
+class PaymentReconciliationJobTest {
+
+    private static final int PAYMENTS = PaymentReconciliationJob.CHUNK_SIZE + 50;
+
+    @Autowired
+    private PaymentReconciliationJob paymentReconciliationJob;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockitoBean
+    private PaymentGateway paymentGateway;
+
+    @MockitoBean
+    private PaymentStatusUpdater paymentStatusUpdater;
+
+    @Test
+    @DisplayName("Should walk unsettled payments in chunks and apply only the sessions the gateway settled")
+    void settlesPaymentsInChunks() {
+        for (int i = 0; i < PAYMENTS; i++) {
+            payment("cs_" + i, i % 2 == 0 ? "CREATED" : "PENDING");
+        }
+        payment("cs_done", "PAID");
+        payment(null, "PENDING");
+        entityManager.flush();
+        when(paymentGateway.getSessionStatus(anyString())).thenAnswer(invocation -> {
+            int index = Integer.parseInt(invocation.<String>getArgument(0).substring(3));
+            if (index == 5) {
+                throw new PaymentGatewayException("unavailable");
+            }
+            return Optional.ofNullable(index % 3 == 0 ? "PAID" : index % 3 == 1 ? "EXPIRED" : null);
+        });
+
+        int settled = paymentReconciliationJob.reconcile();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Map<String, String>> batches = ArgumentCaptor.forClass(Map.class);
+        verify(paymentStatusUpdater, times(2)).apply(batches.capture());
+        Map<String, String> applied = new HashMap<>();
+        batches.getAllValues().forEach(applied::putAll);
+        assertEquals("PAID", applied.get("cs_0"));
+        assertEquals("EXPIRED", applied.get("cs_1"));
+        assertFalse(applied.containsKey("cs_2"));
+        assertFalse(applied.containsKey("cs_5"));
+        assertEquals("PAID", applied.get("cs_" + (PAYMENTS - 1 - (PAYMENTS - 1) % 3)));
+        verify(paymentGateway, never()).getSessionStatus("cs_done");
+        verify(paymentGateway, times(PAYMENTS)).getSessionStatus(anyString());
+        assertEquals(applied.size(), settled);
+        var stats = paymentReconciliationJob.getStats();
+        assertEquals(1, stats.runs());
+        assertEquals(PAYMENTS, stats.checked());
+        assertEquals(settled, stats.settled());
+        assertEquals(1, stats.lookupFailures());
+    }
+
+    @Test
+    @DisplayName("Should not touch the database when the gateway settled nothing")
+    void skipsUpdateWhenNothingSettled() {
+        payment("cs_open", "CREATED");
+        entityManager.flush();
+        when(paymentGateway.getSessionStatus("cs_open")).thenReturn(Optional.empty());
+
+        assertEquals(0, paymentReconciliationJob.reconcile());
+
+        verifyNoInteractions(paymentStatusUpdater);
+    }
+
+    @Test
+    @DisplayName("Should settle expired checkout sessions through the gateway instead of letting them lapse")
+    void settlesExpiredSessionsThroughGateway() {
+        payment("cs_late_paid", "PENDING", Instant.now().minusSeconds(60));
+        payment("cs_lapsed", "CREATED", Instant.now().minusSeconds(60));
+        payment("cs_unknown", "PENDING", Instant.now().minusSeconds(60));
+        payment("cs_open", "PENDING");
+        payment("cs_closed", "EXPIRED", Instant.now().minusSeconds(60));
+        entityManager.flush();
+        when(paymentGateway.getSessionStatus("cs_late_paid")).thenReturn(Optional.of("PAID"));
+        when(paymentGateway.getSessionStatus("cs_lapsed")).thenReturn(Optional.of("EXPIRED"));
+        when(paymentGateway.getSessionStatus("cs_unknown")).thenThrow(new PaymentGatewayException("unavailable"));
+
+        assertEquals(2, paymentReconciliationJob.settleExpired());
+
+        verify(paymentStatusUpdater).apply(Map.of("cs_late_paid", "PAID", "cs_lapsed", "EXPIRED"));
+        verify(paymentGateway, never()).getSessionStatus("cs_open");
+        verify(paymentGateway, never()).getSessionStatus("cs_closed");
+    }
+
+    private void payment(String sessionId, String status) {
+        payment(sessionId, status, Instant.now().plusSeconds(600));
+    }
+
+    private void payment(String sessionId, String status, Instant expiresAt) {
+        entityManager.persist(Payment.builder().sessionId(sessionId).status(status).amount(100L)
+                .expiresAt(expiresAt).build());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.model.Cart;
+import com.example.e_commerce_api.model.Payment;
+import com.example.e_commerce_api.model.StockReservation;
+import com.example.e_commerce_api.model.User;
+import com.example.e_commerce_api.service.inventory.InventoryService;
+import com.example.e_commerce_api.service.inventory.StockReservationService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@Import({PaymentStatusUpdater.class, StockReservationService.class})
+class PaymentStatusUpdaterTest {
+
+    @Autowired
+    private PaymentStatusUpdater paymentStatusUpdater;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private InventoryService inventoryService;
+
+    @Test
+    @DisplayName("Should move the owner off a cart once its payment is settled as paid")
+    void paidCartIsNoLongerActive() {
+        var user = new User();
+        user.setEmail("buyer@example.com");
+        entityManager.persist(user);
+        var paidCart = new Cart(user);
+        var pendingCart = new Cart(user);
+        entityManager.persist(paidCart);
+        entityManager.persist(pendingCart);
+        user.setActiveCartId(paidCart.getId());
+        var paid = payment("cs_paid", "CREATED", 7L, 1);
+        paid.setCart(paidCart);
+        entityManager.flush();
+
+        paymentStatusUpdater.apply(Map.of("cs_paid", "EXPIRED"));
+        entityManager.clear();
+        assertEquals(paidCart.getId(), entityManager.find(User.class, user.getId()).getActiveCartId());
+
+        jdbcTemplate.update("UPDATE payment SET status = 'CREATED' WHERE id = ?", paid.getId());
+        paymentStatusUpdater.apply(Map.of("cs_paid", "PAID"));
+        entityManager.clear();
+        assertNull(entityManager.find(User.class, user.getId()).getActiveCartId());
+    }
+
+    @Test
+    @DisplayName("Should mark paid sessions, drop their reservations and give expired sessions' stock back")
+    void appliesStatusesAndSettlesReservations() {
+        var paid = payment("cs_paid", "CREATED", 7L, 2);
+        var expired = payment("cs_expired", "CREATED", 8L, 3);
+        var alreadyFailed = payment("cs_failed", "FAILED", 9L, 1);
+        entityManager.flush();
+
+        paymentStatusUpdater.apply(Map.of("cs_paid", "PAID", "cs_expired", "EXPIRED", "cs_failed", "PAID"));
+        // a redelivered event changes nothing
+        paymentStatusUpdater.apply(Map.of("cs_paid", "PAID"));
+        entityManager.clear();
+
+        assertEquals("PAID", entityManager.find(Payment.class, paid.getId()).getStatus());
+        assertEquals("EXPIRED", entityManager.find(Payment.class, expired.getId()).getStatus());
+        assertEquals("FAILED", entityManager.find(Payment.class, alreadyFailed.getId()).getStatus());
+        assertEquals(0, reservationsOf(paid));
+        assertEquals(0, reservationsOf(expired));
+        assertEquals(1, reservationsOf(alreadyFailed));
+        verify(inventoryService).release(Map.of(8L, 3));
+        verify(inventoryService, never()).release(Map.of(7L, 2));
+    }
+
+    @Test
+    @DisplayName("Should keep an expired open session's stock from the sweeper so a late payment still finds it")
+    void sweeperLeavesOpenSessionsToTheGateway() {
+        var latePaid = payment("cs_late", "PENDING", 7L, 2, Instant.now().minusSeconds(60));
+        var abandoned = payment(null, "PENDING", 8L, 3, Instant.now().minusSeconds(60));
+        entityManager.flush();
+
+        assertEquals(1, stockReservationService.releaseExpired());
+        paymentStatusUpdater.apply(Map.of("cs_late", "PAID"));
+        entityManager.clear();
+
+        assertEquals("PAID", entityManager.find(Payment.class, latePaid.getId()).getStatus());
+        assertEquals("EXPIRED", entityManager.find(Payment.class, abandoned.getId()).getStatus());
+        assertEquals(0, reservationsOf(latePaid));
+        verify(inventoryService).release(Map.of(8L, 3));
+        verify(inventoryService, never()).release(Map.of(7L, 2));
+    }
+
+    private Payment payment(String sessionId, String status, Long productId, int quantity) {
+        return payment(sessionId, status, productId, quantity, Instant.now().plusSeconds(600));
+    }
+
+    private Payment payment(String sessionId, String status, Long productId, int quantity, Instant expiresAt) {
+        var payment = Payment.builder().sessionId(sessionId).status(status).amount(100L).expiresAt(expiresAt).build();
+        entityManager.persist(payment);
+        entityManager.persist(StockReservation.builder().payment(payment).productId(productId).quantity(quantity).expiresAt(expiresAt).build());
+        return payment;
+    }
+
+    private int reservationsOf(Payment payment) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reservation WHERE payment_id = ?", Integer.class, payment.getId());
+    }
+}
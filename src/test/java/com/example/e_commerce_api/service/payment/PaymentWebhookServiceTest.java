@@ -0,0 +1,85 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.exception.PaymentGatewayException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PaymentWebhookServiceTest {
+
+    private final PaymentGateway paymentGateway = mock(PaymentGateway.class);
+
+    private final PaymentStatusUpdater paymentStatusUpdater = mock(PaymentStatusUpdater.class);
+
+    @Test
+    @DisplayName("Should queue verified events and apply them as one coalesced batch")
+    void drainCoalescesEventsPerSession() {
+        when(paymentGateway.parseWebhook(anyString(), eq("sig"))).thenAnswer(invocation -> {
+            String[] parts = invocation.<String>getArgument(0).split(":");
+            return Optional.of(new PaymentEvent(parts[0], parts[1]));
+        });
+        var service = service(10);
+
+        assertTrue(service.receive("cs_1:PAID", "sig"));
+        assertTrue(service.receive("cs_2:EXPIRED", "sig"));
+        assertTrue(service.receive("cs_1:EXPIRED", "sig"));
+        assertTrue(service.receive("cs_2:FAILED", "sig"));
+        verifyNoInteractions(paymentStatusUpdater);
+
+        assertEquals(4, service.drain());
+
+        verify(paymentStatusUpdater).apply(Map.of("cs_1", "PAID", "cs_2", "FAILED"));
+        assertEquals(0, service.getStats().queued());
+        assertEquals(4, service.getStats().applied());
+    }
+
+    @Test
+    @DisplayName("Should refuse events once the queue is full so the gateway redelivers them")
+    void receiveRefusesWhenQueueIsFull() {
+        when(paymentGateway.parseWebhook(anyString(), anyString())).thenReturn(Optional.of(new PaymentEvent("cs_1", "PAID")));
+        var service = service(1);
+
+        assertTrue(service.receive("{}", "sig"));
+        assertFalse(service.receive("{}", "sig"));
+        assertEquals(1, service.getStats().dropped());
+    }
+
+    @Test
+    @DisplayName("Should reject events with a bad signature before queueing them")
+    void receiveRejectsBadSignature() {
+        when(paymentGateway.parseWebhook(anyString(), anyString())).thenThrow(new PaymentGatewayException("Invalid webhook signature"));
+        var service = service(10);
+
+        assertThrows(PaymentGatewayException.class, () -> service.receive("{}", "forged"));
+        assertEquals(0, service.getStats().queued());
+    }
+
+    @Test
+    @DisplayName("Should keep a batch the database refused for the next drain")
+    void drainRequeuesFailedBatch() {
+        when(paymentGateway.parseWebhook(anyString(), anyString())).thenReturn(Optional.of(new PaymentEvent("cs_1", "PAID")));
+        doThrow(new DataAccessResourceFailureException("down")).doNothing().when(paymentStatusUpdater).apply(any());
+        var service = service(10);
+        service.receive("{}", "sig");
+
+        assertEquals(0, service.drain());
+        assertEquals(1, service.getStats().queued());
+        assertEquals(1, service.drain());
+        assertEquals(1, service.getStats().failedBatches());
+    }
+
+    private PaymentWebhookService service(int queueCapacity) {
+        var service = new PaymentWebhookService(paymentGateway, paymentStatusUpdater);
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        service.start();
+        return service;
+    }
+}
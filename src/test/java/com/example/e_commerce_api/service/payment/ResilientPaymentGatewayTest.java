@@ -0,0 +1,165 @@
+package com.example.e_commerce_api.service.payment;
+
+import com.example.e_commerce_api.exception.PaymentGatewayException;
+import com.example.e_commerce_api.exception.PaymentGatewayUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ResilientPaymentGatewayTest {
+
+    private final FakePaymentGateway fake = new FakePaymentGateway();
+
+    private ResilientPaymentGateway gateway;
+
+    @AfterEach
+    void tearDown() {
+        gateway.stop();
+    }
+
+    @Test
+    @DisplayName("Should pass calls through to a healthy gateway")
+    void passesThrough() {
+        gateway = gateway(1000, 2, 60000);
+
+        var session = gateway.createCheckoutSession(request(1L));
+
+        assertEquals("cs_fake_1", session.id());
+        assertEquals("CLOSED", gateway.getStats().circuitState());
+        assertEquals(1, gateway.getStats().calls());
+    }
+
+    @Test
+    @DisplayName("Should give up on a call that outlives its deadline")
+    void enforcesDeadline() {
+        fake.setLatencyMs(2000);
+        gateway = gateway(100, 2, 60000);
+
+        var failure = assertThrows(PaymentGatewayException.class, () -> gateway.createCheckoutSession(request(1L)));
+
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertEquals(1, gateway.getStats().timeouts());
+    }
+
+    @Test
+    @DisplayName("Should refuse calls beyond the concurrency limit instead of queueing them")
+    void bulkheadRejectsExcessCalls() throws Exception {
+        fake.setLatencyMs(500);
+        gateway = gateway(2000, 1, 60000);
+        var first = CompletableFuture.supplyAsync(() -> gateway.createCheckoutSession(request(1L)));
+        while (gateway.getStats().inFlight() == 0) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(PaymentGatewayUnavailableException.class, () -> gateway.createCheckoutSession(request(2L)));
+
+        assertEquals("cs_fake_1", first.join().id());
+        assertEquals(1, gateway.getStats().rejectedBulkhead());
+    }
+
+    @Test
+    @DisplayName("Should open the circuit on repeated failures and then fail fast without calling the gateway")
+    void opensCircuitAndFailsFast() {
+        fake.setFailureRate(1.0);
+        gateway = gateway(1000, 2, 60000);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(PaymentGatewayException.class, () -> gateway.createCheckoutSession(request(1L)));
+        }
+
+        assertFalse(gateway.isAvailable());
+        assertThrows(PaymentGatewayUnavailableException.class, () -> gateway.createCheckoutSession(request(1L)));
+
+        var stats = gateway.getStats();
+        assertEquals("OPEN", stats.circuitState());
+        assertEquals(4, stats.calls());
+        assertEquals(4, stats.failures());
+        assertEquals(1, stats.rejectedOpen());
+        assertEquals(1, stats.timesOpened());
+    }
+
+    @Test
+    @DisplayName("Should keep the circuit closed when the gateway only rejects requests")
+    void rejectedRequestsDoNotOpenCircuit() {
+        var refusing = mock(PaymentGateway.class);
+        when(refusing.createCheckoutSession(any())).thenThrow(new PaymentGatewayException("Your card was declined"));
+        gateway = gateway(refusing, 1000, 2, 60000);
+        for (int i = 0; i < 6; i++) {
+            assertThrows(PaymentGatewayException.class, () -> gateway.createCheckoutSession(request(1L)));
+        }
+
+        assertTrue(gateway.isAvailable());
+        assertEquals("CLOSED", gateway.getStats().circuitState());
+        assertEquals(6, gateway.getStats().failures());
+    }
+
+    @Test
+    @DisplayName("Should hand back the permit of a call that timed out before it ever started")
+    void releasesPermitOfCallCancelledInQueue() throws Exception {
+        gateway = gateway(100, 1, 60000);
+        var executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(gateway, "executor");
+        var busy = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        var failure = assertThrows(PaymentGatewayException.class, () -> gateway.createCheckoutSession(request(1L)));
+        busy.countDown();
+
+        assertInstanceOf(TimeoutException.class, failure.getCause());
+        assertEquals(0, gateway.getStats().inFlight());
+        assertEquals("cs_fake_2", gateway.createCheckoutSession(request(2L)).id());
+    }
+
+    @Test
+    @DisplayName("Should close the circuit again after a successful half-open probe")
+    void closesAfterSuccessfulProbe() {
+        fake.setFailureRate(1.0);
+        gateway = gateway(1000, 2, 0);
+        for (int i = 0; i < 4; i++) {
+            assertThrows(PaymentGatewayException.class, () -> gateway.createCheckoutSession(request(1L)));
+        }
+        fake.setFailureRate(0.0);
+
+        gateway.createCheckoutSession(request(1L));
+
+        assertEquals("CLOSED", gateway.getStats().circuitState());
+    }
+
+    private ResilientPaymentGateway gateway(long deadlineMs, int maxConcurrent, long openMs) {
+        return gateway(fake, deadlineMs, maxConcurrent, openMs);
+    }
+
+    private ResilientPaymentGateway gateway(PaymentGateway delegate, long deadlineMs, int maxConcurrent, long openMs) {
+        var resilient = new ResilientPaymentGateway(delegate);
+        ReflectionTestUtils.setField(resilient, "deadlineMs", deadlineMs);
+        ReflectionTestUtils.setField(resilient, "maxConcurrent", maxConcurrent);
+        ReflectionTestUtils.setField(resilient, "windowSize", 10);
+        ReflectionTestUtils.setField(resilient, "minimumCalls", 4);
+        ReflectionTestUtils.setField(resilient, "failureRatePercent", 50);
+        ReflectionTestUtils.setField(resilient, "openMs", openMs);
+        resilient.start();
+        return resilient;
+    }
+
+    private static CheckoutRequest request(Long paymentId) {
+        return new CheckoutRequest(1L, paymentId, List.of(new CheckoutRequest.LineItem("Keyboard", 1250L, 1)),
+                Instant.now().plusSeconds(1800));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.e_commerce_api.service.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.e_commerce_api.model.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSearchIndexTest {
+
+    @Test
+    @DisplayName("Should match accented and differently cased terms")
+    void searchFoldsCaseAndAccents() {
+        var index = new ProductSearchIndex();
+        index.index(product(1L, "Café Especial", "Grãos torrados", 10.0, 1));
+
+        assertEquals(List.of(1L), index.search("CAFE graos", 10));
+    }
+
+    @Test
+    @DisplayName("Should rank name matches above description matches")
+    void searchRanksNameMatchesFirst() {
+        var index = new ProductSearchIndex();
+        index.index(product(1L, "Phone case", "Fits any smartphone", 10.0, 1));
+        index.index(product(2L, "Smartphone", "Latest model", 10.0, 1));
+        index.index(product(3L, "Charger", "Fast charging", 10.0, 1));
+
+        assertEquals(List.of(2L, 1L), index.search("smartphone", 10));
+    }
+
+    @Test
+    @DisplayName("Should expand the last query term as a prefix")
+    void searchExpandsLastTermAsPrefix() {
+        var index = new ProductSearchIndex();
+        index.index(product(1L, "Wireless keyboard", "", 10.0, 1));
+        index.index(product(2L, "Wireless mouse", "", 10.0, 1));
+
+        assertEquals(List.of(1L), index.search("wireless key", 10));
+        assertEquals(2, index.search("wire", 10).size());
+    }
+
+    @Test
+    @DisplayName("Should expand a short prefix to its most frequent completions rather than the first ones in order")
+    void prefixExpansionPrefersFrequentTerms() {
+        var index = new ProductSearchIndex();
+        for (long id = 1; id <= 3; id++) {
+            index.index(product(id, "Cable", "", 10.0, 1));
+        }
+        for (long id = 100; id < 170; id++) {
+            index.index(product(id, "Caa" + id, "", 10.0, 1));
+        }
+
+        var results = index.search("ca", 100);
+
+        assertTrue(results.containsAll(List.of(1L, 2L, 3L)));
+    }
+
+    @Test
+    @DisplayName("Should require every term and rank by the summed score")
+    void searchIntersectsTermsAndRanksBySum() {
+        var index = new ProductSearchIndex();
+        index.index(product(1L, "Red chair", "", 10.0, 1));
+        index.index(product(2L, "Chair", "red", 10.0, 1));
+        index.index(product(3L, "Red table", "", 10.0, 1));
+        index.index(product(4L, "Blue chair", "", 10.0, 1));
+
+        assertEquals(List.of(1L, 2L), index.search("red chair", 10));
+        assertEquals(List.of(1L), index.search("red chair", 1));
+        assertEquals(List.of(), index.search("green chair", 10));
+    }
+
+    @Test
+    @DisplayName("Should reflect product updates and removals")
+    void indexAndRemoveKeepIndexCurrent() {
+        var index = new ProductSearchIndex();
+        index.index(product(1L, "Red shirt", "", 10.0, 1));
+        index.index(product(1L, "Blue shirt", "", 10.0, 1));
+
+        assertTrue(index.search("red", 10).isEmpty());
+        assertEquals(List.of(1L), index.search("blue", 10));
+
+        index.remove(1L);
+
+        assertTrue(index.search("shirt", 10).isEmpty());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    @DisplayName("Should keep results correct after compacting removed documents")
+    void searchStillWorksAfterCompaction() {
+        var index = new ProductSearchIndex();
+        for (long id = 1; id <= 25_000; id++) {
+            index.index(product(id, "item " + id, "bulk", 10.0, 1));
+        }
+        for (long id = 1; id <= 20_000; id++) {
+            index.remove(id);
+        }
+
+        assertEquals(5_000, index.size());
+        assertEquals(List.of(24_999L), index.search("24999", 10));
+        assertEquals(3, index.search("bulk", 3).size());
+    }
+
+    @Test
+    @DisplayName("Should compact the tombstones left by repeated updates")
+    void updatesTriggerCompaction() {
+        var index = new ProductSearchIndex();
+        index.index(product(2L, "lamp", "desk", 10.0, 1));
+        for (int version = 1; version <= 30_000; version++) {
+            index.index(product(1L, "chair " + version, "wooden", 10.0, 1));
+        }
+
+        assertEquals(2, index.size());
+        assertTrue(index.allocatedOrdinals() <= 20_001);
+        assertEquals(List.of(1L), index.search("30000", 10));
+        assertTrue(index.search("29999", 10).isEmpty());
+        assertEquals(List.of(2L), index.search("lamp", 10));
+    }
+}
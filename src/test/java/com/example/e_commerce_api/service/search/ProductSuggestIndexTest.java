@@ -0,0 +1,96 @@
+package com.example.e_commerce_api.service.search;
+
+import com.example.e_commerce_api.dto.ProductSuggestionDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.e_commerce_api.model.TestProducts.product;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductSuggestIndexTest {
+
+    private static List<Long> ids(List<ProductSuggestionDTO> suggestions) {
+        return suggestions.stream().map(ProductSuggestionDTO::id).toList();
+    }
+
+    @Test
+    @DisplayName("Should suggest names by prefix ordered by stock")
+    void suggestOrdersByStock() {
+        var index = new ProductSuggestIndex();
+        index.index(product(1L, "Camiseta Azul", "", 10.0, 5));
+        index.index(product(2L, "Camisa Social", "", 10.0, 50));
+        index.index(product(3L, "Calça Jeans", "", 10.0, 20));
+        index.index(product(4L, "Boné", "", 10.0, 100));
+
+        assertEquals(List.of(2L, 3L, 1L), ids(index.suggest("ca", 10)));
+        assertEquals(List.of(2L, 1L), ids(index.suggest("CAMI", 10)));
+        assertEquals(List.of(3L), ids(index.suggest("calca", 10)));
+        assertEquals("Calça Jeans", index.suggest("calca", 10).get(0).name());
+    }
+
+    @Test
+    @DisplayName("Should match prefixes that end inside a compressed edge")
+    void suggestMatchesInsideEdges() {
+        var index = new ProductSuggestIndex();
+        index.index(product(1L, "keyboard", "", 10.0, 1));
+
+        assertEquals(List.of(1L), ids(index.suggest("keyb", 10)));
+        assertTrue(index.suggest("keyx", 10).isEmpty());
+        assertTrue(index.suggest("keyboards", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should refill the top list after a top product is removed")
+    void suggestRefillsAfterRemoval() {
+        var index = new ProductSuggestIndex();
+        for (long id = 1; id <= 15; id++) {
+            index.index(product(id, "item " + id, "", 10.0, (int) id));
+        }
+        assertEquals(ProductSuggestIndex.MAX_SUGGESTIONS, index.suggest("item", 50).size());
+        assertEquals(15L, ids(index.suggest("item", 1)).get(0));
+
+        index.remove(15L);
+        index.remove(14L);
+
+        var top = ids(index.suggest("item", 10));
+        assertEquals(10, top.size());
+        assertEquals(13L, top.get(0));
+        assertFalse(top.contains(15L));
+        assertEquals(4L, top.get(9));
+    }
+
+    @Test
+    @DisplayName("Should prune emptied branches and re-merge single-child chains on removal")
+    void removalPrunesTheTree() {
+        var index = new ProductSuggestIndex();
+        index.index(product(1L, "Keyboard", "", 10.0, 5));
+        index.index(product(2L, "Keypad", "", 10.0, 5));
+        index.index(product(3L, "Key", "", 10.0, 5));
+        assertEquals(3, index.nodeCount());
+
+        index.remove(3L);
+        assertEquals(3, index.nodeCount());
+        index.remove(2L);
+        assertEquals(1, index.nodeCount());
+        assertEquals(List.of(1L), ids(index.suggest("keyb", 10)));
+
+        index.index(product(1L, "Mouse", "", 10.0, 5));
+        assertEquals(1, index.nodeCount());
+        assertEquals(List.of(), ids(index.suggest("key", 10)));
+        assertEquals(List.of(1L), ids(index.suggest("mo", 10)));
+    }
+
+    @Test
+    @DisplayName("Should move a product when its name or stock changes")
+    void indexReplacesPreviousEntry() {
+        var index = new ProductSuggestIndex();
+        index.index(product(1L, "Old name", "", 10.0, 1));
+        index.index(product(2L, "Other", "", 10.0, 5));
+        index.index(product(1L, "Other edition", "", 10.0, 10));
+
+        assertTrue(index.suggest("old", 10).isEmpty());
+        assertEquals(List.of(1L, 2L), ids(index.suggest("oth", 10)));
+    }
+}